@@ -0,0 +1,75 @@
+/**
+ * Exact k-nearest-neighbour search by a linear scan of the training set.
+ * Each query streams over the training rows and keeps only a bounded heap of
+ * the k best candidates, so memory per query is O(k) rather than the O(N) row
+ * of a full distance matrix.
+ * <p>
+ * An optional feature mask restricts the comparison to a subset of columns.
+ * The masked kernel reads the selected features straight from the full rows,
+ * so no subset copy of the training or query data is ever made.
+ *
+ * @version 1.0
+ */
+public class BruteForceSearch implements NeighbourSearch {
+
+    protected final Dataset train;
+    protected final Metric metric;
+    protected final int[] features;
+
+    /**
+     * @param train    Training patterns to search
+     * @param metric   Distance metric used for ranking
+     * @param features Column indices to compare, or null for every column
+     */
+    public BruteForceSearch(Dataset train, Metric metric, int[] features) {
+        this.train = train;
+        this.metric = metric;
+        this.features = features;
+    }
+
+    /**
+     * Search comparing every column.
+     */
+    public BruteForceSearch(Dataset train, Metric metric) {
+        this(train, metric, null);
+    }
+
+    @Override
+    public Neighbours query(float[] query, int offset, int k) {
+        NeighbourHeap heap = new NeighbourHeap(Math.min(k, train.rows()));
+        scan(query, offset, 0, train.rows(), heap);
+        return heap.toNeighbours();
+    }
+
+    /**
+     * Offers training rows {@code [from, to)} to a heap.
+     */
+    protected void scan(float[] query, int offset, int from, int to, NeighbourHeap heap) {
+        float[] values = train.values();
+        if (features == null) {
+            int length = train.cols();
+            for (int j = from; j < to; j++) {
+                heap.offer(j, metric.distance(query, offset, values, train.offset(j), length));
+            }
+        } else {
+            for (int j = from; j < to; j++) {
+                heap.offer(j, metric.distance(query, offset, values, train.offset(j), features));
+            }
+        }
+    }
+
+    public Dataset train() {
+        return train;
+    }
+
+    public Metric metric() {
+        return metric;
+    }
+
+    /**
+     * @return The compared column indices, or null if every column is compared
+     */
+    public int[] features() {
+        return features;
+    }
+}
@@ -0,0 +1,234 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+/**
+ * Saves {@link EvolutionEngine.State}s of a genetic algorithm run to a
+ * compact binary file in the background, so a crashed or stopped run can be
+ * resumed with {@link EvolutionEngine#resume}.
+ * <p>
+ * Every {@code interval} generations the engine's thread only hands the
+ * state over; a single writer thread encodes it and replaces the checkpoint
+ * file. If the writer falls behind, states waiting to be written are
+ * dropped in favour of the newest. Each checkpoint is written to a
+ * temporary file, forced to disk and then renamed over the previous one, so
+ * the file always holds a complete checkpoint. {@link #close} writes the
+ * last state received, whatever its generation.
+ * <p>
+ * Layout, all little-endian:
+ * <pre>
+ * offset size
+ *      0    4  magic "KNNC"
+ *      4    4  format version (2)
+ *      8    4  generation
+ *     12    4  generations without improvement
+ *     16    8  random generator state
+ *     24    8  random generator gamma
+ *     32    8  best fitness
+ *     40    4  chromosome length in bits
+ *     44    4  population size
+ *     48    8  CRC32 of the payload
+ *     56       best chromosome, as packed 64-bit words
+ *              per member: packed words, then fitness as float64
+ * </pre>
+ *
+ * @version 1.0
+ */
+public class CheckpointWriter implements EvolutionEngine.StateListener, AutoCloseable {
+
+    static final int MAGIC = 'K' | 'N' << 8 | 'N' << 16 | 'C' << 24;
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 56;
+
+    private final Path path;
+    private final int interval;
+    private final ExecutorService writer;
+    private final AtomicReference<EvolutionEngine.State> pending = new AtomicReference<>();
+    private volatile EvolutionEngine.State latest;
+    private volatile EvolutionEngine.State written;
+    private volatile IOException failure;
+
+    /**
+     * @param path     Checkpoint file, replaced by each checkpoint
+     * @param interval Generations between checkpoints
+     */
+    public CheckpointWriter(Path path, int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be at least 1 but was " + interval);
+        }
+        this.path = path;
+        this.interval = interval;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void generationCompleted(EvolutionEngine.State state) {
+        latest = state;
+        if (state.generation() % interval == 0 && pending.getAndSet(state) == null) {
+            writer.execute(this::writePending);
+        }
+    }
+
+    /**
+     * Writes the last state received if it has not been written yet and
+     * waits for the writer to finish.
+     *
+     * @throws IOException If any checkpoint could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        EvolutionEngine.State last = latest;
+        if (last != null && pending.getAndSet(last) == null) {
+            writer.execute(this::writePending);
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing " + path, e);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Writes one checkpoint synchronously.
+     *
+     * @param state The state to save
+     * @param path  Checkpoint file, replaced atomically where the file
+     *              system allows
+     */
+    public static void write(EvolutionEngine.State state, Path path) throws IOException {
+        List<Chromosome> population = state.population();
+        double[] fitness = state.fitness();
+        int length = state.best().length();
+        int words = (length + 63) >>> 6;
+        long memberBytes = (long) words * Long.BYTES + Double.BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(
+                HEADER_BYTES + (long) words * Long.BYTES + population.size() * memberBytes))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(HEADER_BYTES);
+        putWords(buffer, state.best());
+        for (int i = 0; i < population.size(); i++) {
+            putWords(buffer, population.get(i));
+            buffer.putDouble(fitness[i]);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, buffer.position() - HEADER_BYTES);
+        buffer.putInt(0, MAGIC)
+                .putInt(4, VERSION)
+                .putInt(8, state.generation())
+                .putInt(12, state.stale())
+                .putLong(16, state.randomState())
+                .putLong(24, state.randomGamma())
+                .putDouble(32, state.bestFitness())
+                .putInt(40, length)
+                .putInt(44, population.size())
+                .putLong(48, crc.getValue())
+                .flip();
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Loads a checkpoint and verifies its checksum.
+     *
+     * @throws IOException If the file cannot be read, is not a checkpoint, or
+     *                     fails its checksum
+     */
+    public static EvolutionEngine.State read(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a checkpoint");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException(path + " has format version " + version + ", expected " + VERSION);
+        }
+        int length = buffer.getInt(40);
+        int size = buffer.getInt(44);
+        int words = (length + 63) >>> 6;
+        if (length < 0 || size < 1 || buffer.limit() != HEADER_BYTES + (long) words * Long.BYTES
+                + size * ((long) words * Long.BYTES + Double.BYTES)) {
+            throw new IOException(path + " is truncated or has a corrupt header");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, buffer.limit() - HEADER_BYTES);
+        if (crc.getValue() != buffer.getLong(48)) {
+            throw new IOException(path + " failed its checksum");
+        }
+        buffer.position(HEADER_BYTES);
+        try {
+            Chromosome best = getWords(buffer, words, length);
+            List<Chromosome> population = new ArrayList<>(size);
+            double[] fitness = new double[size];
+            for (int i = 0; i < size; i++) {
+                population.add(getWords(buffer, words, length));
+                fitness[i] = buffer.getDouble();
+            }
+            return new EvolutionEngine.State(buffer.getInt(8), population, fitness, best, buffer.getDouble(32),
+                    buffer.getInt(12), buffer.getLong(16), buffer.getLong(24));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(path + " holds an invalid state", e);
+        }
+    }
+
+    private void writePending() {
+        EvolutionEngine.State state = pending.getAndSet(null);
+        if (state == null || state == written) {
+            return;
+        }
+        try {
+            write(state, path);
+            written = state;
+        } catch (IOException e) {
+            // Reported by close; later checkpoints may still succeed
+            failure = e;
+        }
+    }
+
+    private static void putWords(ByteBuffer buffer, Chromosome chromosome) {
+        for (long word : chromosome.toLongArray()) {
+            buffer.putLong(word);
+        }
+    }
+
+    private static Chromosome getWords(ByteBuffer buffer, int words, int length) {
+        long[] packed = new long[words];
+        for (int w = 0; w < words; w++) {
+            packed[w] = buffer.getLong();
+        }
+        return Chromosome.valueOf(packed, length);
+    }
+}
@@ -0,0 +1,314 @@
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Immutable, bit-packed feature selection for the genetic algorithm. Bit i
+ * is set when feature i is selected. Bits are stored 64 to a long, so
+ * crossover, mutation, popcount and hashing all work a word at a time, and
+ * instances can be used directly as map keys.
+ *
+ * @version 1.0
+ */
+public final class Chromosome {
+
+    private final long[] words;
+    private final int length;
+    private int hash;
+
+    private Chromosome(long[] words, int length) {
+        this.words = words;
+        this.length = length;
+    }
+
+    /**
+     * Draws every bit independently with probability one half.
+     *
+     * @param length Number of features
+     * @param random Source of randomness
+     */
+    public static Chromosome random(int length, RandomGenerator random) {
+        long[] words = new long[wordCount(length)];
+        for (int w = 0; w < words.length; w++) {
+            words[w] = random.nextLong();
+        }
+        clearTail(words, length);
+        return new Chromosome(words, length);
+    }
+
+    /**
+     * Parses a binary string such as "0110", where character i is bit i.
+     *
+     * @throws IllegalArgumentException If a character is not '0' or '1'
+     */
+    public static Chromosome parse(String bits) {
+        long[] words = new long[wordCount(bits.length())];
+        for (int i = 0; i < bits.length(); i++) {
+            char bit = bits.charAt(i);
+            if (bit == '1') {
+                words[i >>> 6] |= 1L << i;
+            } else if (bit != '0') {
+                throw new IllegalArgumentException("Invalid character '" + bit + "' at position " + i);
+            }
+        }
+        return new Chromosome(words, bits.length());
+    }
+
+    /**
+     * Rebuilds a chromosome from the words returned by {@link #toLongArray}.
+     *
+     * @param words  Bits packed 64 to a long, bit i of the chromosome being
+     *               bit {@code i % 64} of word {@code i / 64}
+     * @param length Number of features
+     * @throws IllegalArgumentException If the number of words does not match
+     *                                  the length or bits beyond it are set
+     */
+    public static Chromosome valueOf(long[] words, int length) {
+        if (length < 0 || words.length != wordCount(length)) {
+            throw new IllegalArgumentException(words.length + " words cannot hold exactly " + length + " bits");
+        }
+        long[] copy = words.clone();
+        clearTail(copy, length);
+        if (!Arrays.equals(copy, words)) {
+            throw new IllegalArgumentException("Bits are set beyond length " + length);
+        }
+        return new Chromosome(copy, length);
+    }
+
+    /**
+     * @return A copy of the packed bits, for compact serialisation
+     */
+    public long[] toLongArray() {
+        return words.clone();
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public boolean get(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * @return Number of selected features
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * @return Index of the first set bit at or after {@code from}, or -1
+     */
+    public int nextSetBit(int from) {
+        if (from >= length) {
+            return -1;
+        }
+        int w = from >>> 6;
+        long word = words[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == words.length) {
+                return -1;
+            }
+            word = words[w];
+        }
+    }
+
+    /**
+     * @return The indices of the selected features in ascending order
+     */
+    public int[] features() {
+        int[] features = new int[cardinality()];
+        int out = 0;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                features[out++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return features;
+    }
+
+    /**
+     * @return The indices where this chromosome and another differ, ascending
+     */
+    public int[] differences(Chromosome other) {
+        checkLength(other);
+        int[] differences = new int[hammingDistance(other)];
+        int out = 0;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w] ^ other.words[w];
+            while (word != 0) {
+                differences[out++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return differences;
+    }
+
+    /**
+     * @return Number of positions where this chromosome and another differ
+     */
+    public int hammingDistance(Chromosome other) {
+        checkLength(other);
+        int distance = 0;
+        for (int w = 0; w < words.length; w++) {
+            distance += Long.bitCount(words[w] ^ other.words[w]);
+        }
+        return distance;
+    }
+
+    /**
+     * Two-point crossover: the bits in {@code [start, end)} are swapped
+     * between this chromosome and another.
+     *
+     * @return The two children, this chromosome's first
+     */
+    public Chromosome[] crossover(Chromosome other, int start, int end) {
+        checkLength(other);
+        if (start < 0 || end > length || start > end) {
+            throw new IllegalArgumentException("Invalid crossover range [" + start + ", " + end + ")");
+        }
+        long[] first = words.clone();
+        long[] second = other.words.clone();
+        for (int w = start >>> 6; w < words.length && (w << 6) < end; w++) {
+            long mask = rangeMask(w, start, end);
+            long swap = (first[w] ^ second[w]) & mask;
+            first[w] ^= swap;
+            second[w] ^= swap;
+        }
+        return new Chromosome[] { new Chromosome(first, length), new Chromosome(second, length) };
+    }
+
+    /**
+     * @return A copy with one bit inverted
+     */
+    public Chromosome flip(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Bit " + index + " of " + length);
+        }
+        long[] flipped = words.clone();
+        flipped[index >>> 6] ^= 1L << index;
+        return new Chromosome(flipped, length);
+    }
+
+    /**
+     * Uniform crossover: swaps the bits selected by a mask between this
+     * chromosome and another.
+     *
+     * @param other The other parent, of the same length
+     * @param mask  Set bits mark the positions to swap
+     * @return The two children; the first keeps this chromosome's bits
+     *         outside the mask
+     */
+    public Chromosome[] crossover(Chromosome other, Chromosome mask) {
+        checkLength(other);
+        checkLength(mask);
+        long[] first = words.clone();
+        long[] second = other.words.clone();
+        for (int w = 0; w < words.length; w++) {
+            long swap = (first[w] ^ second[w]) & mask.words[w];
+            first[w] ^= swap;
+            second[w] ^= swap;
+        }
+        return new Chromosome[] { new Chromosome(first, length), new Chromosome(second, length) };
+    }
+
+    /**
+     * Flips each bit independently with the given probability. Instead of
+     * drawing once per bit, the gap to the next flipped bit is drawn from the
+     * matching geometric distribution, so the cost is proportional to the
+     * number of flips.
+     *
+     * @param probability Chance of each bit being flipped, between 0 and 1
+     * @param random      Source of randomness
+     * @return The mutated chromosome
+     */
+    public Chromosome mutate(double probability, RandomGenerator random) {
+        if (probability <= 0) {
+            return this;
+        }
+        long[] mutated = words.clone();
+        if (probability >= 1) {
+            for (int w = 0; w < mutated.length; w++) {
+                mutated[w] = ~mutated[w];
+            }
+        } else {
+            double logKeep = Math.log1p(-probability);
+            long bit = -1;
+            while (true) {
+                bit += 1 + (long) Math.floor(Math.log(1 - random.nextDouble()) / logKeep);
+                if (bit >= length) {
+                    break;
+                }
+                mutated[(int) (bit >>> 6)] ^= 1L << bit;
+            }
+        }
+        clearTail(mutated, length);
+        return new Chromosome(mutated, length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Chromosome)) {
+            return false;
+        }
+        Chromosome other = (Chromosome) o;
+        return length == other.length && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = 31 * Arrays.hashCode(words) + length;
+            hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * @return The chromosome as a binary string, character i being bit i
+     */
+    @Override
+    public String toString() {
+        char[] bits = new char[length];
+        for (int i = 0; i < length; i++) {
+            bits[i] = get(i) ? '1' : '0';
+        }
+        return new String(bits);
+    }
+
+    private void checkLength(Chromosome other) {
+        if (other.length != length) {
+            throw new IllegalArgumentException("Chromosome lengths differ: " + length + " and " + other.length);
+        }
+    }
+
+    private static long rangeMask(int word, int start, int end) {
+        int lo = Math.max(start - (word << 6), 0);
+        int hi = Math.min(end - (word << 6), 64);
+        long upper = hi == 64 ? -1L : (1L << hi) - 1;
+        return upper & (-1L << lo);
+    }
+
+    private static int wordCount(int length) {
+        return (length + 63) >>> 6;
+    }
+
+    private static void clearTail(long[] words, int length) {
+        if ((length & 63) != 0) {
+            words[words.length - 1] &= (1L << length) - 1;
+        }
+    }
+}
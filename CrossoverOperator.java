@@ -0,0 +1,44 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * Recombines two parents into two children.
+ *
+ * @version 1.0
+ */
+public interface CrossoverOperator {
+
+    /**
+     * @param first  First parent
+     * @param second Second parent, of the same length
+     * @param random Source of randomness
+     * @return Two children
+     */
+    Chromosome[] apply(Chromosome first, Chromosome second, RandomGenerator random);
+
+    /**
+     * Swaps everything after one random cut point.
+     */
+    static CrossoverOperator onePoint() {
+        return (first, second, random) -> first.crossover(second, random.nextInt(first.length() + 1),
+                first.length());
+    }
+
+    /**
+     * Swaps the segment between two random cut points, as the original
+     * crossover does.
+     */
+    static CrossoverOperator twoPoint() {
+        return (first, second, random) -> {
+            int r1 = random.nextInt(first.length());
+            int r2 = random.nextInt(first.length());
+            return first.crossover(second, Math.min(r1, r2), Math.max(r1, r2));
+        };
+    }
+
+    /**
+     * Swaps each bit independently with probability one half.
+     */
+    static CrossoverOperator uniform() {
+        return (first, second, random) -> first.crossover(second, Chromosome.random(first.length(), random));
+    }
+}
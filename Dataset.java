@@ -0,0 +1,146 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dense, row-major feature matrix backed by a single primitive float array.
+ * Row {@code r} starts at {@code r * stride} and holds {@code cols} features;
+ * any padding between {@code cols} and {@code stride} is unused. The optional
+ * label array holds one class label per row.
+ *
+ * @version 1.0
+ */
+public final class Dataset {
+
+    private final float[] values;
+    private final int rows;
+    private final int cols;
+    private final int stride;
+    private final int[] labels;
+
+    /**
+     * Wraps an existing row-major array without copying it.
+     *
+     * @param values Backing array, at least {@code rows * stride} long
+     * @param rows   Number of patterns
+     * @param cols   Number of features per pattern
+     * @param stride Distance in the array between the starts of two rows
+     * @param labels One label per row, or null if the set is unlabelled
+     */
+    public Dataset(float[] values, int rows, int cols, int stride, int[] labels) {
+        if (rows < 0 || cols < 0 || stride < cols) {
+            throw new IllegalArgumentException(
+                    "Invalid shape rows=" + rows + " cols=" + cols + " stride=" + stride);
+        }
+        if ((long) rows * stride > values.length) {
+            throw new IllegalArgumentException(
+                    "Backing array holds " + values.length + " values, need " + (long) rows * stride);
+        }
+        if (labels != null && labels.length != rows) {
+            throw new IllegalArgumentException(
+                    "Expected " + rows + " labels but got " + labels.length);
+        }
+        this.values = values;
+        this.rows = rows;
+        this.cols = cols;
+        this.stride = stride;
+        this.labels = labels;
+    }
+
+    /**
+     * Wraps a tightly packed row-major array (stride equal to the column count).
+     */
+    public Dataset(float[] values, int rows, int cols) {
+        this(values, rows, cols, cols, null);
+    }
+
+    /**
+     * Packs a list of parsed rows into one contiguous array.
+     *
+     * @param rowList Rows of features, all of the same length
+     * @return An unlabelled dataset
+     * @throws IllegalArgumentException If the rows are ragged
+     */
+    public static Dataset fromRows(List<float[]> rowList) {
+        int rows = rowList.size();
+        int cols = rows == 0 ? 0 : rowList.get(0).length;
+        float[] values = new float[rows * cols];
+        for (int r = 0; r < rows; r++) {
+            float[] row = rowList.get(r);
+            if (row.length != cols) {
+                throw new IllegalArgumentException(
+                        "Row " + r + " has " + row.length + " features, expected " + cols);
+            }
+            System.arraycopy(row, 0, values, r * cols, cols);
+        }
+        return new Dataset(values, rows, cols);
+    }
+
+    /**
+     * Returns a view of this dataset sharing the same feature array with the
+     * given labels attached.
+     */
+    public Dataset withLabels(int[] newLabels) {
+        return new Dataset(values, rows, cols, stride, newLabels);
+    }
+
+    /**
+     * Copies the selected columns of every row into a new, tightly packed
+     * dataset. Labels are carried over unchanged.
+     *
+     * @param features Column indices to keep, in output order
+     */
+    public Dataset selectFeatures(int[] features) {
+        float[] selected = new float[rows * features.length];
+        int out = 0;
+        for (int r = 0; r < rows; r++) {
+            int base = r * stride;
+            for (int feature : features) {
+                selected[out++] = values[base + feature];
+            }
+        }
+        return new Dataset(selected, rows, features.length, features.length, labels);
+    }
+
+    public float[] values() {
+        return values;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public int stride() {
+        return stride;
+    }
+
+    public int[] labels() {
+        return labels;
+    }
+
+    public int label(int row) {
+        return labels[row];
+    }
+
+    /**
+     * @return Index in {@link #values()} of the first feature of a row
+     */
+    public int offset(int row) {
+        return row * stride;
+    }
+
+    public float get(int row, int col) {
+        return values[row * stride + col];
+    }
+
+    /**
+     * @return A copy of one row's features
+     */
+    public float[] row(int row) {
+        int base = row * stride;
+        return Arrays.copyOfRange(values, base, base + cols);
+    }
+}
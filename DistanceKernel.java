@@ -0,0 +1,22 @@
+/**
+ * Un-finished distance sums between two rows, as in
+ * {@link Metric#accumulate}: the squared Euclidean sum before its square
+ * root, and the Manhattan sum.
+ *
+ * @version 1.0
+ */
+public interface DistanceKernel {
+
+    double squaredEuclidean(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    double manhattan(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * @return The un-finished sum for the given metric
+     */
+    default double accumulate(Metric metric, float[] a, int aOffset, float[] b, int bOffset, int length) {
+        return metric == Metric.EUCLIDEAN
+                ? squaredEuclidean(a, aOffset, b, bOffset, length)
+                : manhattan(a, aOffset, b, bOffset, length);
+    }
+}
@@ -0,0 +1,135 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Chooses the fastest available {@link DistanceKernel} and checks it against
+ * the reference sums of {@link Metric}.
+ * <p>
+ * Tolerance: the SIMD kernels accumulate in float lanes, so for n features
+ * their relative error against the double-precision reference is bounded by
+ * roughly (n / lanes + log2(lanes)) x 2^-24. {@link #RELATIVE_TOLERANCE}
+ * allows 1e-5, which covers several hundred features; both kernels are
+ * non-negative sums, so a relative bound is meaningful.
+ *
+ * @version 1.0
+ */
+public final class DistanceKernels {
+
+    /** Largest accepted |vector - reference| / reference. */
+    public static final double RELATIVE_TOLERANCE = 1e-5;
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final DistanceKernel BEST = load();
+
+    private DistanceKernels() {
+    }
+
+    /**
+     * @return The Vector API kernel when the incubator module is in the boot
+     *         layer and vector/VectorDistanceKernel was compiled onto the
+     *         class path, otherwise the scalar kernel
+     */
+    public static DistanceKernel best() {
+        return BEST;
+    }
+
+    /**
+     * @return True if {@link #best()} is the SIMD kernel
+     */
+    public static boolean isVectorized() {
+        return !(BEST instanceof ScalarDistanceKernel);
+    }
+
+    private static DistanceKernel load() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                return (DistanceKernel) Class.forName("VectorDistanceKernel").getDeclaredConstructor()
+                        .newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Not compiled, or unsupported here: use the scalar loops
+            }
+        }
+        return new ScalarDistanceKernel();
+    }
+
+    /**
+     * @return |actual - expected| relative to expected, or the absolute
+     *         difference when the expected sum is zero
+     */
+    static double relativeError(double actual, double expected) {
+        double difference = Math.abs(actual - expected);
+        return expected == 0 ? difference : difference / expected;
+    }
+
+    /**
+     * Compares the selected kernel against {@link Metric} on the project data
+     * (if present) and on random data, and times both.
+     * Run with {@code java --add-modules jdk.incubator.vector DistanceKernels},
+     * after compiling vector/VectorDistanceKernel.java, to exercise the SIMD
+     * path.
+     */
+    public static void main(String[] args) throws IOException {
+        System.out.println("Kernel: " + BEST.getClass().getSimpleName());
+        if (Files.isRegularFile(Paths.get("train_data.txt")) && Files.isRegularFile(Paths.get("test_data.txt"))) {
+            check("project", TextDatasetLoader.loadFeatures(Paths.get("test_data.txt")),
+                    TextDatasetLoader.loadFeatures(Paths.get("train_data.txt")));
+        }
+        Random random = new Random(7);
+        for (int dims : new int[] { 7, 61, 256 }) {
+            check("random" + dims, random(500, dims, random), random(2000, dims, random));
+        }
+    }
+
+    private static void check(String name, Dataset queries, Dataset train) {
+        for (Metric metric : Metric.values()) {
+            double worst = 0;
+            for (int i = 0; i < queries.rows(); i++) {
+                for (int j = 0; j < train.rows(); j++) {
+                    double expected = metric.accumulate(queries.values(), queries.offset(i), train.values(),
+                            train.offset(j), train.cols());
+                    double actual = BEST.accumulate(metric, queries.values(), queries.offset(i), train.values(),
+                            train.offset(j), train.cols());
+                    worst = Math.max(worst, relativeError(actual, expected));
+                }
+            }
+            double referenceMillis = time(queries, train, (a, ao, b, bo, n) -> metric.accumulate(a, ao, b, bo, n));
+            double kernelMillis = time(queries, train, (a, ao, b, bo, n) -> BEST.accumulate(metric, a, ao, b, bo, n));
+            System.out.printf("%-10s %-9s max rel error %.2e (%s)  reference %.2f ms  kernel %.2f ms%n", name,
+                    metric, worst, worst <= RELATIVE_TOLERANCE ? "ok" : "EXCEEDS TOLERANCE", referenceMillis,
+                    kernelMillis);
+        }
+    }
+
+    private interface Sum {
+        double apply(float[] a, int aOffset, float[] b, int bOffset, int length);
+    }
+
+    private static double time(Dataset queries, Dataset train, Sum sum) {
+        long best = Long.MAX_VALUE;
+        double sink = 0;
+        for (int r = 0; r < 5; r++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < queries.rows(); i++) {
+                for (int j = 0; j < train.rows(); j++) {
+                    sink += sum.apply(queries.values(), queries.offset(i), train.values(), train.offset(j),
+                            train.cols());
+                }
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        if (sink == -1) {
+            System.out.println(sink);
+        }
+        return best / 1e6;
+    }
+
+    private static Dataset random(int rows, int cols, Random random) {
+        float[] values = new float[rows * cols];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextFloat();
+        }
+        return new Dataset(values, rows, cols);
+    }
+}
@@ -0,0 +1,265 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Exact brute-force search that stops summing a training row as soon as its
+ * partial distance sum shows it cannot enter the current top k.
+ * <p>
+ * Rows are compared on the un-finished sum (squared distance for Euclidean),
+ * so the square root is only taken for rows that actually enter the heap.
+ * The abandon bound is derived from the k-th best distance t: a sum of at
+ * least nextUp(t)^2 (Euclidean) or nextUp(t) (Manhattan) always finishes as
+ * a distance strictly greater than t. Partial sums of non-negative terms
+ * never decrease, so abandoned rows could not have been kept, and
+ * neighbours, distances and tie order are exactly those of
+ * {@link BruteForceSearch}.
+ * <p>
+ * Optionally the features are visited in order of decreasing training-set
+ * variance, which makes the partial sum grow fastest and abandons earlier.
+ * The training columns are then stored a second time in that order. Because
+ * a reordered sum can round differently, a row that survives the reordered
+ * pass is re-summed in the original order before it is offered to the heap.
+ *
+ * @version 1.0
+ */
+public class EarlyAbandonSearch implements NeighbourSearch {
+
+    /** Number of features summed between two abandon checks. */
+    static final int CHECK_INTERVAL = 8;
+    /** Relative margin covering rounding differences of a reordered sum. */
+    private static final double REORDER_MARGIN = 1e-9;
+
+    private final Dataset train;
+    private final Metric metric;
+    // FEATURE INDICES IN VISITING ORDER, OR NULL FOR THE NATURAL ORDER
+    private final int[] featureOrder;
+    // TRAINING ROWS WITH COLUMNS PERMUTED TO featureOrder, TIGHTLY PACKED
+    private final float[] reordered;
+
+    /**
+     * @param train           Training patterns to search
+     * @param metric          Distance metric used for ranking
+     * @param orderByVariance Whether to visit high-variance features first
+     */
+    public EarlyAbandonSearch(Dataset train, Metric metric, boolean orderByVariance) {
+        this.train = train;
+        this.metric = metric;
+        if (orderByVariance) {
+            this.featureOrder = varianceOrder(train);
+            this.reordered = permuteColumns(train, featureOrder);
+        } else {
+            this.featureOrder = null;
+            this.reordered = null;
+        }
+    }
+
+    @Override
+    public Neighbours query(float[] query, int offset, int k) {
+        NeighbourHeap heap = new NeighbourHeap(Math.min(k, train.rows()));
+        if (featureOrder == null) {
+            scanNatural(query, offset, heap);
+        } else {
+            scanReordered(query, offset, heap);
+        }
+        return heap.toNeighbours();
+    }
+
+    /**
+     * @return Feature indices in visiting order, or null for the natural order
+     */
+    public int[] featureOrder() {
+        return featureOrder == null ? null : featureOrder.clone();
+    }
+
+    private void scanNatural(float[] query, int offset, NeighbourHeap heap) {
+        float[] values = train.values();
+        int cols = train.cols();
+        boolean euclidean = metric == Metric.EUCLIDEAN;
+        double bound = abandonBound(heap.threshold());
+        for (int j = 0; j < train.rows(); j++) {
+            int base = train.offset(j);
+            double sum = 0;
+            int k = 0;
+            while (k < cols && sum < bound) {
+                int end = Math.min(cols, k + CHECK_INTERVAL);
+                sum = extend(euclidean, sum, query, offset, values, base, k, end);
+                k = end;
+            }
+            if (sum < bound) {
+                if (heap.offer(j, metric.finish(sum))) {
+                    bound = abandonBound(heap.threshold());
+                }
+            }
+        }
+    }
+
+    private void scanReordered(float[] query, int offset, NeighbourHeap heap) {
+        int cols = train.cols();
+        float[] permutedQuery = new float[cols];
+        for (int c = 0; c < cols; c++) {
+            permutedQuery[c] = query[offset + featureOrder[c]];
+        }
+        boolean euclidean = metric == Metric.EUCLIDEAN;
+        double bound = abandonBound(heap.threshold()) * (1 + REORDER_MARGIN);
+        for (int j = 0; j < train.rows(); j++) {
+            int base = j * cols;
+            double sum = 0;
+            int k = 0;
+            while (k < cols && sum < bound) {
+                int end = Math.min(cols, k + CHECK_INTERVAL);
+                sum = extend(euclidean, sum, permutedQuery, 0, reordered, base, k, end);
+                k = end;
+            }
+            if (sum < bound) {
+                double distance = metric.distance(query, offset, train.values(), train.offset(j), cols);
+                if (heap.offer(j, distance)) {
+                    bound = abandonBound(heap.threshold()) * (1 + REORDER_MARGIN);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the terms of features [from, to) to a partial sum, in the same
+     * order and precision as {@link Metric#accumulate}.
+     */
+    private static double extend(boolean euclidean, double sum, float[] a, int aOffset, float[] b, int bOffset,
+            int from, int to) {
+        if (euclidean) {
+            for (int k = from; k < to; k++) {
+                double diff = a[aOffset + k] - b[bOffset + k];
+                sum += diff * diff;
+            }
+        } else {
+            for (int k = from; k < to; k++) {
+                sum += Math.abs(a[aOffset + k] - b[bOffset + k]);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @return The smallest un-finished sum that is certain to round to a
+     *         distance strictly greater than the threshold
+     */
+    private double abandonBound(double threshold) {
+        if (threshold == Double.POSITIVE_INFINITY) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double next = Math.nextUp(threshold);
+        // Rounding the square up keeps the bound at or above the exact nextUp(t)^2
+        return metric == Metric.EUCLIDEAN ? Math.nextUp(next * next) : next;
+    }
+
+    private static int[] varianceOrder(Dataset data) {
+        int cols = data.cols();
+        double[] mean = new double[cols];
+        double[] m2 = new double[cols];
+        float[] values = data.values();
+        for (int r = 0; r < data.rows(); r++) {
+            int base = data.offset(r);
+            for (int c = 0; c < cols; c++) {
+                // Welford's update
+                double delta = values[base + c] - mean[c];
+                mean[c] += delta / (r + 1);
+                m2[c] += delta * (values[base + c] - mean[c]);
+            }
+        }
+        Integer[] order = new Integer[cols];
+        for (int c = 0; c < cols; c++) {
+            order[c] = c;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(m2[b], m2[a]));
+        return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static float[] permuteColumns(Dataset data, int[] order) {
+        int cols = data.cols();
+        float[] permuted = new float[data.rows() * cols];
+        float[] values = data.values();
+        for (int r = 0; r < data.rows(); r++) {
+            int base = data.offset(r);
+            for (int c = 0; c < cols; c++) {
+                permuted[r * cols + c] = values[base + order[c]];
+            }
+        }
+        return permuted;
+    }
+
+    /**
+     * Times the plain scan against early abandoning with and without variance
+     * ordering, on the project data and on synthetic data with a few dominant
+     * features, and checks that all three return the same neighbours.
+     *
+     * @param args Optional k (default 1)
+     */
+    public static void main(String[] args) throws IOException {
+        int k = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        Dataset train = BinaryDataset.readOrParseText(Paths.get("train.knnb"), Paths.get("train_data.txt"),
+                Paths.get("train_label.txt"));
+        Dataset test = BinaryDataset.readOrParseText(Paths.get("test.knnb"), Paths.get("test_data.txt"),
+                Paths.get("test_label.txt"));
+        System.out.printf("%-10s %-9s %10s %10s %10s %8s %8s %s%n", "data", "metric", "plain ms", "abandon ms",
+                "ordered ms", "speedup", "ordered", "same");
+        for (Metric metric : Metric.values()) {
+            compare("project", train, test, metric, k);
+        }
+        Random random = new Random(11);
+        Dataset syntheticTrain = skewed(20_000, 61, random);
+        Dataset syntheticQueries = skewed(500, 61, random);
+        for (Metric metric : Metric.values()) {
+            compare("skewed", syntheticTrain, syntheticQueries, metric, k);
+        }
+    }
+
+    private static void compare(String name, Dataset train, Dataset queries, Metric metric, int k) {
+        NeighbourSearch plain = new BruteForceSearch(train, metric);
+        NeighbourSearch abandon = new EarlyAbandonSearch(train, metric, false);
+        NeighbourSearch ordered = new EarlyAbandonSearch(train, metric, true);
+        Neighbours[] expected = plain.queryAll(queries, k);
+        boolean same = sameNeighbours(expected, abandon.queryAll(queries, k))
+                && sameNeighbours(expected, ordered.queryAll(queries, k));
+        double plainMillis = millis(plain, queries, k);
+        double abandonMillis = millis(abandon, queries, k);
+        double orderedMillis = millis(ordered, queries, k);
+        System.out.printf("%-10s %-9s %10.2f %10.2f %10.2f %7.2fx %7.2fx %s%n", name, metric, plainMillis,
+                abandonMillis, orderedMillis, plainMillis / abandonMillis, plainMillis / orderedMillis, same);
+    }
+
+    private static boolean sameNeighbours(Neighbours[] expected, Neighbours[] actual) {
+        for (int i = 0; i < expected.length; i++) {
+            if (!Arrays.equals(expected[i].indices(), actual[i].indices())
+                    || !Arrays.equals(expected[i].distances(), actual[i].distances())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double millis(NeighbourSearch search, Dataset queries, int k) {
+        search.queryAll(queries, k);
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < 5; r++) {
+            long start = System.nanoTime();
+            search.queryAll(queries, k);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+
+    /**
+     * Uniform data whose later columns have a much wider range, so that the
+     * natural order visits the small features first.
+     */
+    private static Dataset skewed(int rows, int cols, Random random) {
+        float[] values = new float[rows * cols];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                values[r * cols + c] = random.nextFloat() * (c + 1) * (c + 1);
+            }
+        }
+        return new Dataset(values, rows, cols);
+    }
+}
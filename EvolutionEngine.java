@@ -0,0 +1,424 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Generational genetic algorithm over {@link Chromosome}s with pluggable
+ * selection, crossover and mutation.
+ * <p>
+ * Each generation keeps the {@code elitism} fittest members unchanged, then
+ * fills the rest of the population with children: two parents are chosen by
+ * the {@link Selection}, recombined by the {@link CrossoverOperator} with
+ * probability {@code crossoverRate} (otherwise copied), and each child is
+ * passed through the {@link MutationOperator}. Fitness is higher-is-better.
+ * <p>
+ * A run stops at the first of: the target fitness is reached, the generation
+ * budget is spent, the wall-clock budget is spent, or the best fitness has
+ * not improved for {@code patience} generations. The clock is checked between
+ * generations, so a run can overshoot its time budget by one generation.
+ * <p>
+ * Driven by a {@link SeededRandom}, a run can report its {@link State} after
+ * every generation and later be resumed from any of them, continuing exactly
+ * as it would have without the interruption.
+ *
+ * @version 1.0
+ */
+public class EvolutionEngine {
+
+    /**
+     * Scores a whole population at once, so implementations can evaluate
+     * members in parallel and reuse earlier scores.
+     */
+    public interface PopulationFitness {
+
+        /**
+         * @return The fitness of every member, in order
+         */
+        double[] evaluate(List<Chromosome> population);
+    }
+
+    /**
+     * Called after the initial population (generation 0) and after every
+     * generation has been scored.
+     */
+    public interface GenerationListener {
+
+        void generationScored(int generation, List<Chromosome> population, double[] fitness, Chromosome best,
+                double bestFitness);
+    }
+
+    /**
+     * Why a run ended.
+     */
+    public enum StopReason {
+        TARGET_REACHED, GENERATION_LIMIT, TIME_LIMIT, NO_IMPROVEMENT
+    }
+
+    /**
+     * Limits on a run. Use {@link Integer#MAX_VALUE} or
+     * {@link Long#MAX_VALUE} for no limit and positive infinity for no
+     * target.
+     */
+    public static final class Budget {
+
+        final int maxGenerations;
+        final long maxMillis;
+        final int patience;
+        final double targetFitness;
+
+        /**
+         * @param maxGenerations Generations to run after the initial one
+         * @param maxMillis      Wall-clock budget in milliseconds
+         * @param patience       Generations without improvement before stopping
+         * @param targetFitness  Fitness at which the run stops early
+         */
+        public Budget(int maxGenerations, long maxMillis, int patience, double targetFitness) {
+            if (maxGenerations < 0 || maxMillis < 0 || patience < 1) {
+                throw new IllegalArgumentException("Invalid budget: " + maxGenerations + " generations, "
+                        + maxMillis + " ms, patience " + patience);
+            }
+            this.maxGenerations = maxGenerations;
+            this.maxMillis = maxMillis;
+            this.patience = patience;
+            this.targetFitness = targetFitness;
+        }
+    }
+
+    /**
+     * Outcome of a run.
+     */
+    public static final class Result {
+
+        private final Chromosome best;
+        private final double bestFitness;
+        private final int generations;
+        private final StopReason stopReason;
+        private final List<Chromosome> population;
+        private final double[] fitness;
+
+        Result(Chromosome best, double bestFitness, int generations, StopReason stopReason,
+                List<Chromosome> population, double[] fitness) {
+            this.best = best;
+            this.bestFitness = bestFitness;
+            this.generations = generations;
+            this.stopReason = stopReason;
+            this.population = population;
+            this.fitness = fitness;
+        }
+
+        public Chromosome best() {
+            return best;
+        }
+
+        public double bestFitness() {
+            return bestFitness;
+        }
+
+        /**
+         * @return Generations run after the initial population
+         */
+        public int generations() {
+            return generations;
+        }
+
+        public StopReason stopReason() {
+            return stopReason;
+        }
+
+        /**
+         * @return The last generation, from which a later run can continue
+         */
+        public List<Chromosome> population() {
+            return Collections.unmodifiableList(population);
+        }
+
+        /**
+         * @return The fitness of each member of {@link #population}
+         */
+        public double[] fitness() {
+            return fitness.clone();
+        }
+    }
+
+    /**
+     * Everything needed to continue a run after a completed generation:
+     * the scored population, the best member so far, the generations since
+     * it last improved, and the state of the {@link SeededRandom} driving
+     * the run.
+     */
+    public static final class State {
+
+        private final int generation;
+        private final List<Chromosome> population;
+        private final double[] fitness;
+        private final Chromosome best;
+        private final double bestFitness;
+        private final int stale;
+        private final long randomState;
+        private final long randomGamma;
+
+        State(int generation, List<Chromosome> population, double[] fitness, Chromosome best, double bestFitness,
+                int stale, long randomState, long randomGamma) {
+            if (population.isEmpty() || population.size() != fitness.length) {
+                throw new IllegalArgumentException(
+                        population.size() + " members but " + fitness.length + " fitness values");
+            }
+            for (Chromosome member : population) {
+                if (member.length() != best.length()) {
+                    throw new IllegalArgumentException("Members of " + member.length()
+                            + " features in a population whose best has " + best.length());
+                }
+            }
+            this.generation = generation;
+            this.population = List.copyOf(population);
+            this.fitness = fitness.clone();
+            this.best = best;
+            this.bestFitness = bestFitness;
+            this.stale = stale;
+            this.randomState = randomState;
+            this.randomGamma = randomGamma;
+        }
+
+        public int generation() {
+            return generation;
+        }
+
+        public List<Chromosome> population() {
+            return population;
+        }
+
+        public double[] fitness() {
+            return fitness.clone();
+        }
+
+        public Chromosome best() {
+            return best;
+        }
+
+        public double bestFitness() {
+            return bestFitness;
+        }
+
+        /**
+         * @return Generations since the best fitness last improved
+         */
+        public int stale() {
+            return stale;
+        }
+
+        /**
+         * @return The {@link SeededRandom#state} after this generation
+         */
+        public long randomState() {
+            return randomState;
+        }
+
+        /**
+         * @return The {@link SeededRandom#gamma} of the generator
+         */
+        public long randomGamma() {
+            return randomGamma;
+        }
+    }
+
+    /**
+     * Receives the {@link State} after the initial population and after
+     * every generation, for example to checkpoint it. Called on the thread
+     * running the engine, so it should hand slow work to another thread.
+     */
+    public interface StateListener {
+
+        void generationCompleted(State state);
+    }
+
+    private final Selection selection;
+    private final CrossoverOperator crossover;
+    private final MutationOperator mutation;
+    private final int populationSize;
+    private final int elitism;
+    private final double crossoverRate;
+
+    /**
+     * @param selection      How parents are chosen
+     * @param crossover      How two parents are recombined
+     * @param mutation       How each child is mutated
+     * @param populationSize Members per generation, at least 2
+     * @param elitism        Fittest members copied unchanged into the next
+     *                       generation, less than the population size
+     * @param crossoverRate  Chance that a pair of parents is recombined
+     *                       rather than copied, between 0 and 1
+     */
+    public EvolutionEngine(Selection selection, CrossoverOperator crossover, MutationOperator mutation,
+            int populationSize, int elitism, double crossoverRate) {
+        if (populationSize < 2 || elitism < 0 || elitism >= populationSize) {
+            throw new IllegalArgumentException(
+                    "Need a population of at least 2 and fewer elites, but got " + populationSize + " and " + elitism);
+        }
+        if (!(crossoverRate >= 0 && crossoverRate <= 1)) {
+            throw new IllegalArgumentException("Crossover rate must be in [0, 1] but was " + crossoverRate);
+        }
+        this.selection = selection;
+        this.crossover = crossover;
+        this.mutation = mutation;
+        this.populationSize = populationSize;
+        this.elitism = elitism;
+        this.crossoverRate = crossoverRate;
+    }
+
+    /**
+     * Evolves a population until the budget is spent.
+     *
+     * @param initial  Initial population; its size need not match the
+     *                 engine's population size
+     * @param fitness  Scores populations
+     * @param budget   When to stop
+     * @param random   Source of randomness for selection and the operators
+     * @param listener Notified after each generation, or null
+     */
+    public Result run(List<Chromosome> initial, PopulationFitness fitness, Budget budget, RandomGenerator random,
+            GenerationListener listener) {
+        return run(initial, fitness, budget, random, listener, null);
+    }
+
+    /**
+     * Evolves a population until the budget is spent, reporting the state
+     * after every generation so the run can later be resumed.
+     *
+     * @param random Source of randomness; must be a {@link SeededRandom}
+     *               when {@code states} is not null
+     * @param states Receives the state after each generation, or null
+     * @see #run(List, PopulationFitness, Budget, RandomGenerator, GenerationListener)
+     */
+    public Result run(List<Chromosome> initial, PopulationFitness fitness, Budget budget, RandomGenerator random,
+            GenerationListener listener, StateListener states) {
+        if (initial.isEmpty()) {
+            throw new IllegalArgumentException("The initial population is empty");
+        }
+        if (states != null && !(random instanceof SeededRandom)) {
+            throw new IllegalArgumentException("Capturing state needs a SeededRandom");
+        }
+        long deadline = deadline(budget);
+        List<Chromosome> population = new ArrayList<>(initial);
+        double[] scores = fitness.evaluate(population);
+        int bestIndex = rank(scores)[0];
+        Chromosome best = population.get(bestIndex);
+        double bestFitness = scores[bestIndex];
+        if (listener != null) {
+            listener.generationScored(0, population, scores, best, bestFitness);
+        }
+        if (states != null) {
+            states.generationCompleted(
+                    new State(0, population, scores, best, bestFitness, 0, ((SeededRandom) random).state(),
+                            ((SeededRandom) random).gamma()));
+        }
+        return evolve(population, scores, 0, best, bestFitness, 0, fitness, budget, deadline, random, listener,
+                states);
+    }
+
+    /**
+     * Continues a run from a captured state, drawing the same random numbers
+     * the original run would have drawn. The generation and patience budgets
+     * count from the start of the original run; the wall-clock budget counts
+     * from now. The resumed generation is not scored or reported again.
+     *
+     * @param state    State captured by a {@link StateListener}
+     * @param fitness  Scores populations
+     * @param budget   When to stop
+     * @param listener Notified after each generation, or null
+     * @param states   Receives the state after each generation, or null
+     * @throws IllegalArgumentException If the state's population is not the
+     *                                  size this engine breeds
+     */
+    public Result resume(State state, PopulationFitness fitness, Budget budget, GenerationListener listener,
+            StateListener states) {
+        if (state.population.size() != populationSize) {
+            throw new IllegalArgumentException("State has a population of " + state.population.size()
+                    + " but this engine breeds " + populationSize);
+        }
+        return evolve(new ArrayList<>(state.population), state.fitness(), state.generation, state.best,
+                state.bestFitness, state.stale, fitness, budget, deadline(budget),
+                SeededRandom.fromState(state.randomState, state.randomGamma), listener, states);
+    }
+
+    @SuppressWarnings("try")
+    private Result evolve(List<Chromosome> population, double[] scores, int generation, Chromosome best,
+            double bestFitness, int stale, PopulationFitness fitness, Budget budget, long deadline,
+            RandomGenerator random, GenerationListener listener, StateListener states) {
+        while (true) {
+            StopReason reason = bestFitness >= budget.targetFitness ? StopReason.TARGET_REACHED
+                    : generation >= budget.maxGenerations ? StopReason.GENERATION_LIMIT
+                    : System.nanoTime() - deadline >= 0 ? StopReason.TIME_LIMIT
+                    : stale >= budget.patience ? StopReason.NO_IMPROVEMENT
+                    : null;
+            if (reason != null) {
+                return new Result(best, bestFitness, generation, reason, population, scores);
+            }
+            generation++;
+            try (Metrics.Span span = Metrics.span(Metrics.Stage.GA_GENERATION, populationSize)) {
+                population = breed(population, scores, random);
+                scores = fitness.evaluate(population);
+            }
+            int bestIndex = rank(scores)[0];
+            if (scores[bestIndex] > bestFitness) {
+                best = population.get(bestIndex);
+                bestFitness = scores[bestIndex];
+                stale = 0;
+            } else {
+                stale++;
+            }
+            if (listener != null) {
+                listener.generationScored(generation, population, scores, best, bestFitness);
+            }
+            if (states != null) {
+                states.generationCompleted(new State(generation, population, scores, best, bestFitness, stale,
+                        ((SeededRandom) random).state(), ((SeededRandom) random).gamma()));
+            }
+        }
+    }
+
+    /**
+     * @return The {@link System#nanoTime} at which the budget's clock runs out
+     */
+    private static long deadline(Budget budget) {
+        return System.nanoTime() + Math.min(budget.maxMillis, Long.MAX_VALUE / 2_000_000) * 1_000_000;
+    }
+
+    /**
+     * Builds the next generation: elites first, then children.
+     */
+    List<Chromosome> breed(List<Chromosome> population, double[] scores, RandomGenerator random) {
+        List<Chromosome> next = new ArrayList<>(populationSize);
+        int[] ranked = rank(scores);
+        for (int e = 0; e < Math.min(elitism, ranked.length); e++) {
+            next.add(population.get(ranked[e]));
+        }
+        int children = populationSize - next.size();
+        int[] parents = selection.select(scores, children + (children & 1), random);
+        for (int p = 0; next.size() < populationSize; p += 2) {
+            Chromosome first = population.get(parents[p]);
+            Chromosome second = population.get(parents[p + 1]);
+            Chromosome[] pair = random.nextDouble() < crossoverRate
+                    ? crossover.apply(first, second, random)
+                    : new Chromosome[] { first, second };
+            next.add(mutation.apply(pair[0], random));
+            if (next.size() < populationSize) {
+                next.add(mutation.apply(pair[1], random));
+            }
+        }
+        return next;
+    }
+
+    /**
+     * @return Member indices ordered by descending fitness, ties by index
+     */
+    static int[] rank(double[] fitness) {
+        Integer[] order = new Integer[fitness.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(fitness[b], fitness[a]));
+        return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,82 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Bounded, least-recently-used memo of fitness evaluations keyed by
+ * chromosome. Values are futures, so a chromosome that appears twice in one
+ * generation is scored once even while the first evaluation is still
+ * running. Hit and miss counts are kept until {@link #resetStatistics} so
+ * callers can report them per generation.
+ *
+ * @param <K> Chromosome type; must implement equals and hashCode
+ * @version 1.0
+ */
+public class FitnessCache<K> {
+
+    private final int maxSize;
+    private final Map<K, Future<Double>> entries;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxSize Maximum number of chromosomes remembered
+     */
+    public FitnessCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1 but was " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Future<Double>> eldest) {
+                return size() > FitnessCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the remembered evaluation of a chromosome, or starts and
+     * remembers a new one.
+     *
+     * @param chromosome The chromosome to score
+     * @param evaluator  Starts an evaluation on a miss
+     * @return The pending or completed fitness
+     */
+    public synchronized Future<Double> computeIfAbsent(K chromosome, Function<K, Future<Double>> evaluator) {
+        Future<Double> fitness = entries.get(chromosome);
+        if (fitness != null) {
+            hits++;
+            Metrics.FITNESS_CACHE.hit();
+            return fitness;
+        }
+        misses++;
+        Metrics.FITNESS_CACHE.miss();
+        fitness = evaluator.apply(chromosome);
+        entries.put(chromosome, fitness);
+        return fitness;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Zeroes the hit and miss counts without forgetting any entries.
+     */
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+    }
+}
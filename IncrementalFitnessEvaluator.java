@@ -0,0 +1,346 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.random.RandomGenerator;
+
+/**
+ * Classifies the test set under a feature selection by reusing the distance
+ * sums of a similar, previously evaluated selection.
+ * <p>
+ * Both supported metrics are sums of independent per-feature terms, so the
+ * test x train sums of a child differ from those of a parent only by the
+ * terms of the features whose bits were flipped. A child that is a few bits
+ * away from a remembered chromosome therefore costs a few features' worth of
+ * work instead of a full rescan. When no remembered chromosome is close
+ * enough, or when a chain of updates has grown long enough for rounding to
+ * matter, the sums are recomputed from scratch.
+ * <p>
+ * Because additions happen in a different order, the sums may differ from a
+ * direct computation in the last bits of a double. Rankings only change
+ * when two training rows are within that rounding of each other.
+ * <p>
+ * {@link #crossValidation} builds an evaluator that scores the training set
+ * against itself: the sums cover train x train, and a row is only compared
+ * with rows outside its own fold. Leave-one-out is the case where every row
+ * is its own fold, so one remembered train x train structure serves every
+ * fold instead of one search per fold.
+ * <p>
+ * Each evaluation is split into row groups (the rows of one fold, or a block
+ * of rows) that update and classify their own part of the sums. When called
+ * from a {@link java.util.concurrent.ForkJoinPool} worker the groups are
+ * forked into that pool, so idle workers steal fold work from candidates
+ * that are still running; otherwise they run on the calling thread.
+ * <p>
+ * Every remembered chromosome holds a test x train matrix of doubles, so
+ * the memory is bounded in bytes rather than in chromosomes: at most
+ * {@code capacityBytes / entryBytes} are kept, and an evaluator whose single
+ * matrix would not fit is rejected. Each evaluation in flight holds one more
+ * matrix on top of that.
+ *
+ * @version 1.0
+ */
+public class IncrementalFitnessEvaluator {
+
+    /** Number of delta updates after which sums are rebuilt from scratch. */
+    static final int MAX_DELTA_DEPTH = 16;
+    /** Rows per task when rows are not grouped by fold. */
+    static final int ROWS_PER_TASK = 16;
+
+    private final Dataset test;
+    private final Dataset train;
+    private final Metric metric;
+    private final int k;
+    private final Voting voting;
+    private final int capacity;
+    // FOLD OF EVERY TEST ROW WHEN TEST AND TRAIN ARE THE SAME SET, OTHERWISE NULL
+    private final int[] folds;
+    private final int[][] rowGroups;
+    // MOST RECENTLY USED LAST
+    private final List<Entry> remembered = new ArrayList<>();
+
+    /**
+     * @param test          Labelled test set
+     * @param train         Labelled training set
+     * @param metric        Distance metric
+     * @param k             Number of neighbours per vote
+     * @param voting        How neighbours are combined into a label
+     * @param capacityBytes Memory for the distance sums of remembered
+     *                      chromosomes
+     * @throws IllegalArgumentException If one chromosome's sums do not fit in
+     *                                  {@code capacityBytes} or in a Java array
+     */
+    public IncrementalFitnessEvaluator(Dataset test, Dataset train, Metric metric, int k, Voting voting,
+            long capacityBytes) {
+        this(test, train, metric, k, voting, capacityBytes, null);
+    }
+
+    private IncrementalFitnessEvaluator(Dataset test, Dataset train, Metric metric, int k, Voting voting,
+            long capacityBytes, int[] folds) {
+        long entryBytes = entryBytes(test, train);
+        if (entryBytes / Double.BYTES > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Distance sums of " + test.rows() + " x " + train.rows()
+                    + " rows do not fit in an array");
+        }
+        if (capacityBytes < entryBytes) {
+            throw new IllegalArgumentException("Capacity must be at least " + entryBytes + " bytes for "
+                    + test.rows() + " x " + train.rows() + " rows but was " + capacityBytes);
+        }
+        this.test = test;
+        this.train = train;
+        this.metric = metric;
+        this.voting = voting;
+        this.capacity = (int) Math.min(Integer.MAX_VALUE, capacityBytes / Math.max(1, entryBytes));
+        this.folds = folds;
+        if (folds == null) {
+            this.k = Math.min(k, train.rows());
+            this.rowGroups = blocks(test.rows());
+        } else {
+            int foldCount = 0;
+            for (int fold : folds) {
+                foldCount = Math.max(foldCount, fold + 1);
+            }
+            // A row's candidates exclude at least its own fold
+            int smallestOutside = train.rows();
+            int[] foldSizes = new int[foldCount];
+            for (int fold : folds) {
+                foldSizes[fold]++;
+            }
+            for (int size : foldSizes) {
+                smallestOutside = Math.min(smallestOutside, train.rows() - size);
+            }
+            this.k = Math.min(k, smallestOutside);
+            this.rowGroups = foldCount == folds.length ? blocks(folds.length) : groupByFold(folds, foldSizes);
+        }
+    }
+
+    /**
+     * Evaluator that scores a feature selection by k-fold cross-validation
+     * on the training set alone. Rows are dealt to folds in a shuffled
+     * order, so fold sizes differ by at most one.
+     *
+     * @param train         Labelled training set
+     * @param metric        Distance metric
+     * @param k             Number of neighbours per vote, capped at the rows outside
+     *                      the largest fold
+     * @param voting        How neighbours are combined into a label
+     * @param capacityBytes Memory for the distance sums of remembered
+     *                      chromosomes
+     * @param folds         Number of folds, from 2 up to the number of rows;
+     *                      the number of rows means leave-one-out
+     * @param random        Source of the fold assignment's shuffle
+     */
+    public static IncrementalFitnessEvaluator crossValidation(Dataset train, Metric metric, int k, Voting voting,
+            long capacityBytes, int folds, RandomGenerator random) {
+        return new IncrementalFitnessEvaluator(train, train, metric, k, voting, capacityBytes,
+                assignFolds(train.rows(), folds, random));
+    }
+
+    /**
+     * Deals rows to folds in a shuffled order, as {@link #crossValidation}
+     * does, so other scorers can use the same split.
+     *
+     * @param rows   Number of rows
+     * @param folds  Number of folds, from 2 up to the number of rows
+     * @param random Source of the shuffle
+     * @return The fold of every row
+     */
+    public static int[] assignFolds(int rows, int folds, RandomGenerator random) {
+        if (folds < 2 || folds > rows) {
+            throw new IllegalArgumentException(
+                    "Folds must be between 2 and " + rows + " but was " + folds);
+        }
+        int[] order = new int[rows];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        if (folds < rows) {
+            for (int i = order.length - 1; i > 0; i--) {
+                int swap = random.nextInt(i + 1);
+                int row = order[i];
+                order[i] = order[swap];
+                order[swap] = row;
+            }
+        }
+        int[] assignment = new int[rows];
+        for (int i = 0; i < order.length; i++) {
+            assignment[order[i]] = i % folds;
+        }
+        return assignment;
+    }
+
+    /**
+     * @return Bytes of distance sums held per remembered chromosome of a
+     *         test set against a training set
+     */
+    public static long entryBytes(Dataset test, Dataset train) {
+        return (long) test.rows() * train.rows() * Double.BYTES;
+    }
+
+    /**
+     * @return The labels predictions are scored against: the test labels, or
+     *         the training labels under cross-validation
+     */
+    public int[] labels() {
+        return test.labels();
+    }
+
+    /**
+     * Predicts the test labels using only the selected features.
+     *
+     * @param chromosome Chromosome with a set bit for every selected feature
+     * @return One predicted label per test row
+     */
+    public int[] predict(Chromosome chromosome) {
+        Entry base = closest(chromosome);
+        Entry entry;
+        int[] changed;
+        if (base != null && (base.depth < MAX_DELTA_DEPTH || base.chromosome.equals(chromosome))) {
+            entry = new Entry(chromosome, base.sums.clone(), base.depth + 1);
+            changed = base.chromosome.differences(chromosome);
+            Metrics.INCREMENTAL_FITNESS.hit();
+        } else {
+            entry = new Entry(chromosome, new double[Math.toIntExact((long) test.rows() * train.rows())], 0);
+            changed = chromosome.features();
+            Metrics.INCREMENTAL_FITNESS.miss();
+        }
+        int[] predictions = new int[test.rows()];
+        List<GroupTask> tasks = new ArrayList<>(rowGroups.length);
+        for (int[] rows : rowGroups) {
+            tasks.add(new GroupTask(rows, entry.sums, chromosome, changed, predictions));
+        }
+        if (ForkJoinTask.inForkJoinPool()) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            for (GroupTask task : tasks) {
+                task.compute();
+            }
+        }
+        remember(entry);
+        return predictions;
+    }
+
+    /**
+     * @return The remembered chromosome nearest in Hamming distance, if it is
+     *         cheaper to update than to recompute from scratch
+     */
+    private Entry closest(Chromosome chromosome) {
+        Entry best = null;
+        int bestDistance = chromosome.cardinality();
+        synchronized (remembered) {
+            for (Entry entry : remembered) {
+                int distance = entry.chromosome.hammingDistance(chromosome);
+                if (distance < bestDistance || (distance == 0 && best == null)) {
+                    best = entry;
+                    bestDistance = distance;
+                }
+            }
+        }
+        return best;
+    }
+
+    private void remember(Entry entry) {
+        synchronized (remembered) {
+            remembered.removeIf(old -> old.chromosome.equals(entry.chromosome));
+            remembered.add(entry);
+            if (remembered.size() > capacity) {
+                remembered.remove(0);
+            }
+        }
+    }
+
+    /**
+     * Adds (sign 1) or removes (sign -1) one feature's term from the sums of
+     * one test row against every training row.
+     */
+    private void applyFeature(double[] sums, int row, int feature, int sign) {
+        float[] testValues = test.values();
+        float[] trainValues = train.values();
+        int testOffset = test.offset(row) + feature;
+        int cell = Math.toIntExact((long) row * train.rows());
+        for (int j = 0; j < train.rows(); j++) {
+            sums[cell++] += sign * metric.accumulate(testValues, testOffset, trainValues, train.offset(j) + feature, 1);
+        }
+    }
+
+    private int classify(double[] sums, int row, NeighbourHeap heap) {
+        heap.clear();
+        int cell = Math.toIntExact((long) row * train.rows());
+        for (int j = 0; j < train.rows(); j++) {
+            if (folds != null && folds[j] == folds[row]) {
+                continue;
+            }
+            // Deltas can leave a removed term as a tiny negative residue
+            heap.offer(j, metric.finish(Math.max(0, sums[cell + j])));
+        }
+        return voting.vote(heap.toNeighbours(), train.labels());
+    }
+
+    private static int[][] blocks(int rows) {
+        int[][] groups = new int[(rows + ROWS_PER_TASK - 1) / ROWS_PER_TASK][];
+        for (int g = 0; g < groups.length; g++) {
+            int from = g * ROWS_PER_TASK;
+            groups[g] = new int[Math.min(ROWS_PER_TASK, rows - from)];
+            for (int i = 0; i < groups[g].length; i++) {
+                groups[g][i] = from + i;
+            }
+        }
+        return groups;
+    }
+
+    private static int[][] groupByFold(int[] folds, int[] foldSizes) {
+        int[][] groups = new int[foldSizes.length][];
+        int[] filled = new int[foldSizes.length];
+        for (int fold = 0; fold < foldSizes.length; fold++) {
+            groups[fold] = new int[foldSizes[fold]];
+        }
+        for (int row = 0; row < folds.length; row++) {
+            groups[folds[row]][filled[folds[row]]++] = row;
+        }
+        return groups;
+    }
+
+    /**
+     * Brings the sums of a group of test rows up to date with a chromosome
+     * and classifies those rows.
+     */
+    private final class GroupTask extends RecursiveAction {
+
+        private final int[] rows;
+        private final double[] sums;
+        private final Chromosome chromosome;
+        private final int[] changed;
+        private final int[] predictions;
+
+        private GroupTask(int[] rows, double[] sums, Chromosome chromosome, int[] changed, int[] predictions) {
+            this.rows = rows;
+            this.sums = sums;
+            this.chromosome = chromosome;
+            this.changed = changed;
+            this.predictions = predictions;
+        }
+
+        @Override
+        protected void compute() {
+            NeighbourHeap heap = new NeighbourHeap(k);
+            for (int row : rows) {
+                for (int feature : changed) {
+                    applyFeature(sums, row, feature, chromosome.get(feature) ? 1 : -1);
+                }
+                predictions[row] = classify(sums, row, heap);
+            }
+        }
+    }
+
+    private static final class Entry {
+        final Chromosome chromosome;
+        final double[] sums;
+        final int depth;
+
+        Entry(Chromosome chromosome, double[] sums, int depth) {
+            this.chromosome = chromosome;
+            this.sums = sums;
+            this.depth = depth;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the KD-tree index against the brute-force scan on the project
+ * data and on synthetic uniform data of increasing dimensionality, and checks
+ * that both return the same neighbours.
+ *
+ * @version 1.0
+ */
+public final class IndexBenchmark {
+
+    private static final int[] SYNTHETIC_DIMENSIONS = { 2, 4, 8, 16, 32, 61 };
+    private static final int REPETITIONS = 5;
+
+    private IndexBenchmark() {
+    }
+
+    /**
+     * @param args Optional number of synthetic training rows (default 20000),
+     *             query rows (default 500), k (default 5) and leaf size
+     *             (default {@link KdTreeSearch#DEFAULT_LEAF_SIZE})
+     */
+    public static void main(String[] args) throws IOException {
+        int trainRows = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int queryRows = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int k = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int leafSize = args.length > 3 ? Integer.parseInt(args[3]) : KdTreeSearch.DEFAULT_LEAF_SIZE;
+
+        System.out.printf("%-12s %-9s %7s %5s %10s %10s %10s %8s %s%n", "data", "metric", "rows", "dims",
+                "build ms", "brute ms", "kd ms", "speedup", "same");
+        Path train = Paths.get("train_data.txt");
+        Path test = Paths.get("test_data.txt");
+        if (Files.isRegularFile(train) && Files.isRegularFile(test)) {
+            Dataset trainData = TextDatasetLoader.loadFeatures(train);
+            Dataset testData = TextDatasetLoader.loadFeatures(test);
+            for (Metric metric : Metric.values()) {
+                run("project", trainData, testData, metric, k, leafSize);
+            }
+        }
+        Random random = new Random(42);
+        for (int dims : SYNTHETIC_DIMENSIONS) {
+            Dataset trainData = uniform(trainRows, dims, random);
+            Dataset queries = uniform(queryRows, dims, random);
+            for (Metric metric : Metric.values()) {
+                run("uniform", trainData, queries, metric, k, leafSize);
+            }
+        }
+    }
+
+    private static void run(String name, Dataset train, Dataset queries, Metric metric, int k, int leafSize) {
+        long buildStart = System.nanoTime();
+        KdTreeSearch tree = new KdTreeSearch(train, metric, leafSize);
+        long buildNanos = System.nanoTime() - buildStart;
+        BruteForceSearch brute = new BruteForceSearch(train, metric);
+
+        Neighbours[] expected = brute.queryAll(queries, k);
+        Neighbours[] actual = tree.queryAll(queries, k);
+        boolean same = true;
+        for (int i = 0; i < expected.length; i++) {
+            same &= Arrays.equals(expected[i].indices(), actual[i].indices())
+                    && Arrays.equals(expected[i].distances(), actual[i].distances());
+        }
+        double bruteMillis = time(brute, queries, k);
+        double treeMillis = time(tree, queries, k);
+        System.out.printf("%-12s %-9s %7d %5d %10.2f %10.2f %10.2f %7.2fx %s%n", name, metric, train.rows(),
+                train.cols(), buildNanos / 1e6, bruteMillis, treeMillis, bruteMillis / treeMillis, same);
+    }
+
+    /**
+     * @return Best of several runs in milliseconds, after one warm-up run
+     */
+    private static double time(NeighbourSearch search, Dataset queries, int k) {
+        search.queryAll(queries, k);
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < REPETITIONS; r++) {
+            long start = System.nanoTime();
+            search.queryAll(queries, k);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+
+    private static Dataset uniform(int rows, int cols, Random random) {
+        float[] values = new float[rows * cols];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextFloat();
+        }
+        return new Dataset(values, rows, cols);
+    }
+}
@@ -0,0 +1,421 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Island-model genetic algorithm: several {@link IslandWorker}s evolve
+ * separate populations for kNN feature selection and periodically exchange
+ * their fittest members.
+ * <p>
+ * The coordinator listens on a TCP port, starts or waits for one worker per
+ * island, and sends each the same {@link IslandWorker.Config}. Migration is
+ * synchronous: every {@code interval} generations all islands report, the
+ * coordinator forwards each island's migrants to the islands named by the
+ * {@link MigrationTopology}, and the islands continue. The run ends after a
+ * number of epochs, an epoch being one migration interval, or as soon as an
+ * island reaches the target fitness.
+ * <p>
+ * Workers map the binary datasets read-only, so islands started as
+ * processes on one machine share a single copy of the data in the page
+ * cache. {@link Launch#THREADS} runs the workers inside this JVM as a
+ * lightweight stand-in, and {@link Launch#REMOTE} starts nothing and waits
+ * for workers started by hand with {@code java IslandWorker host port island}.
+ * <p>
+ * Every worker must present the run's token in its HELLO. The token is taken
+ * from the {@value IslandWorker#TOKEN_VARIABLE} environment variable, or
+ * generated and handed to locally started workers; connections with a wrong
+ * token are dropped without affecting the run. Once connected, a worker that
+ * sends nothing for the report timeout fails the run instead of stalling it.
+ *
+ * @version 1.0
+ */
+public class IslandCoordinator {
+
+    /** Default number of islands. */
+    public static final int DEFAULT_ISLANDS = 4;
+    /** Default number of migration intervals before the run stops. */
+    public static final int DEFAULT_EPOCHS = 40;
+    /** Default number of generations between migrations. */
+    public static final int DEFAULT_MIGRATION_INTERVAL = 5;
+    /** Default number of members each island sends per migration. */
+    public static final int DEFAULT_MIGRANTS = 2;
+
+    /** Default longest wait for an island's next report. */
+    public static final long DEFAULT_REPORT_TIMEOUT_MILLIS = 30 * 60_000;
+
+    /** Longest time locally started workers may take to connect, and any worker to say HELLO. */
+    private static final long CONNECT_TIMEOUT_MILLIS = 60_000;
+    /** JVM options passed on to worker processes: heap, module and system property options. */
+    private static final String[] INHERITED_OPTIONS = {"-Xmx", "-Xms", "-Xss", "-D", "--add-modules",
+        "--add-exports", "--add-opens", "--add-reads", "--enable-preview"};
+    /** System properties that would clash or open ports if every worker had them. */
+    private static final String[] EXCLUDED_PROPERTIES = {"-Dcom.sun.management.", "-Djava.rmi.server."};
+
+    /**
+     * How the workers are started.
+     */
+    public enum Launch {
+        /** One worker JVM per island, with this JVM's options and class path. */
+        PROCESSES,
+        /** One worker thread per island in this JVM. */
+        THREADS,
+        /** Nothing is started; workers on any host connect on their own. */
+        REMOTE
+    }
+
+    private final IslandWorker.Config config;
+    private final int islands;
+    private final int epochs;
+    private final MigrationTopology topology;
+    private final double targetFitness;
+    private final long reportTimeoutMillis;
+    private final String token;
+    private final boolean generatedToken;
+
+    /**
+     * @param config        Configuration sent to every worker
+     * @param islands       Number of islands
+     * @param epochs        Migration intervals before the run stops
+     * @param topology      Which islands receive each island's migrants
+     * @param targetFitness Fitness at which the run stops early
+     */
+    public IslandCoordinator(IslandWorker.Config config, int islands, int epochs, MigrationTopology topology,
+            double targetFitness) {
+        this(config, islands, epochs, topology, targetFitness, DEFAULT_REPORT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param config              Configuration sent to every worker
+     * @param islands             Number of islands
+     * @param epochs              Migration intervals before the run stops
+     * @param topology            Which islands receive each island's migrants
+     * @param targetFitness       Fitness at which the run stops early
+     * @param reportTimeoutMillis Longest wait for an island's next report
+     */
+    public IslandCoordinator(IslandWorker.Config config, int islands, int epochs, MigrationTopology topology,
+            double targetFitness, long reportTimeoutMillis) {
+        if (islands < 1 || epochs < 1) {
+            throw new IllegalArgumentException(
+                    "Need at least one island and one epoch but got " + islands + " and " + epochs);
+        }
+        if (reportTimeoutMillis < 1 || reportTimeoutMillis > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Report timeout must be between 1 and " + Integer.MAX_VALUE
+                    + " ms but was " + reportTimeoutMillis);
+        }
+        this.config = config;
+        this.islands = islands;
+        this.epochs = epochs;
+        this.topology = topology;
+        this.targetFitness = targetFitness;
+        this.reportTimeoutMillis = reportTimeoutMillis;
+        String configured = System.getenv(IslandWorker.TOKEN_VARIABLE);
+        this.generatedToken = configured == null || configured.isEmpty();
+        if (generatedToken) {
+            byte[] secret = new byte[16];
+            new SecureRandom().nextBytes(secret);
+            this.token = HexFormat.of().formatHex(secret);
+        } else {
+            this.token = configured;
+        }
+    }
+
+    /**
+     * Starts the workers and runs the islands to completion, listening on
+     * every interface in {@link Launch#REMOTE} mode.
+     *
+     * @see #run(InetAddress, int, Launch)
+     */
+    public EvolutionEngine.Result run(int port, Launch launch) throws IOException {
+        return run(null, port, launch);
+    }
+
+    /**
+     * Starts the workers and runs the islands to completion.
+     *
+     * @param address Address to listen on in {@link Launch#REMOTE} mode, or
+     *                null for every interface; other modes always listen on
+     *                the loopback address
+     * @param port    Port to listen on, or 0 for any free port
+     * @param launch  How the workers are started
+     * @return The fittest member found on any island; its population is the
+     *         last set of migrants reported, and its generation count is per
+     *         island
+     * @throws IOException If a worker cannot be started, fails, stops
+     *                     reporting or breaks the protocol
+     */
+    public EvolutionEngine.Result run(InetAddress address, int port, Launch launch) throws IOException {
+        InetAddress bind = launch == Launch.REMOTE ? address : InetAddress.getLoopbackAddress();
+        List<Process> processes = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        DataInputStream[] in = new DataInputStream[islands];
+        DataOutputStream[] out = new DataOutputStream[islands];
+        Socket[] sockets = new Socket[islands];
+        try (ServerSocket server = new ServerSocket(port, islands, bind)) {
+            String host = InetAddress.getLoopbackAddress().getHostAddress();
+            for (int island = 0; island < islands; island++) {
+                if (launch == Launch.PROCESSES) {
+                    processes.add(startProcess(host, server.getLocalPort(), island));
+                } else if (launch == Launch.THREADS) {
+                    threads.add(startThread(host, server.getLocalPort(), island));
+                }
+            }
+            if (launch == Launch.REMOTE) {
+                System.out.println("Waiting for " + islands + " workers on port " + server.getLocalPort()
+                        + (generatedToken ? " with " + IslandWorker.TOKEN_VARIABLE + "=" + token : ""));
+            } else {
+                server.setSoTimeout((int) CONNECT_TIMEOUT_MILLIS);
+            }
+            for (int connected = 0; connected < islands; ) {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout((int) CONNECT_TIMEOUT_MILLIS);
+                DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                int island;
+                try {
+                    IslandWorker.expect(input, IslandWorker.HELLO);
+                    byte[] presented = input.readUTF().getBytes(StandardCharsets.UTF_8);
+                    if (!MessageDigest.isEqual(presented, token.getBytes(StandardCharsets.UTF_8))) {
+                        throw new IOException("wrong token");
+                    }
+                    island = input.readInt();
+                } catch (IOException e) {
+                    // Not one of our workers; keep waiting for the real ones
+                    System.err.println("Rejected connection from " + socket.getRemoteSocketAddress() + ": " + e);
+                    socket.close();
+                    continue;
+                }
+                if (island < 0 || island >= islands || sockets[island] != null) {
+                    socket.close();
+                    throw new IOException("Unexpected or duplicate island " + island);
+                }
+                socket.setSoTimeout((int) reportTimeoutMillis);
+                sockets[island] = socket;
+                connected++;
+                in[island] = input;
+                out[island] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                config.write(out[island]);
+                out[island].flush();
+            }
+            return migrate(in, out);
+        } finally {
+            for (Socket socket : sockets) {
+                if (socket != null) {
+                    socket.close();
+                }
+            }
+            awaitWorkers(processes, threads);
+        }
+    }
+
+    /**
+     * Runs the islands on the project's datasets. The run seed is kNN2's,
+     * set with {@code -Dknn.seed}; with the same seed and settings the
+     * islands evolve identically whichever way the workers are launched.
+     *
+     * @param args Optional number of islands, epochs, migration interval,
+     *             migrants per island, topology (RING, FULLY_CONNECTED or
+     *             STAR), launch mode (PROCESSES, THREADS or REMOTE), port and
+     *             the address REMOTE mode listens on
+     */
+    public static void main(String[] args) throws IOException {
+        int islands = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ISLANDS;
+        int epochs = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_EPOCHS;
+        int interval = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MIGRATION_INTERVAL;
+        int migrants = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MIGRANTS;
+        MigrationTopology topology = args.length > 4 ? MigrationTopology.valueOf(args[4]) : MigrationTopology.RING;
+        Launch launch = args.length > 5 ? Launch.valueOf(args[5]) : Launch.PROCESSES;
+        int port = args.length > 6 ? Integer.parseInt(args[6]) : 0;
+        InetAddress address = args.length > 7 ? InetAddress.getByName(args[7]) : null;
+
+        Path train = binaryCopy(Paths.get(kNN2.TRAIN_BINARY_PATH), Paths.get(kNN2.TRAIN_DATA_PATH),
+                Paths.get(kNN2.TRAIN_LABEL_PATH));
+        Path test = binaryCopy(Paths.get(kNN2.TEST_BINARY_PATH), Paths.get(kNN2.TEST_DATA_PATH),
+                Paths.get(kNN2.TEST_LABEL_PATH));
+        long seed = kNN2.RUN_SEED;
+        System.out.println("Seed " + seed + ", " + islands + " islands, " + topology + " migration of " + migrants
+                + " every " + interval + " generations");
+        IslandWorker.Config config = new IslandWorker.Config(train.toString(), test.toString(), Metric.EUCLIDEAN,
+                kNN2.K, kNN2.VOTING, 100, 0.05, interval, migrants, seed);
+        EvolutionEngine.Result result = new IslandCoordinator(config, islands, epochs, topology, 100)
+                .run(address, port, launch);
+        System.out.println("Found best accuracy: " + result.bestFitness() + " with parent " + result.best()
+                + " after " + result.generations() + " generations per island (" + result.stopReason() + ")");
+    }
+
+    /**
+     * One epoch per iteration: collects every island's report, then either
+     * stops all islands or forwards the migrants.
+     */
+    private EvolutionEngine.Result migrate(DataInputStream[] in, DataOutputStream[] out) throws IOException {
+        IslandWorker.Migrant best = null;
+        int generations = 0;
+        for (int epoch = 1; ; epoch++) {
+            List<List<IslandWorker.Migrant>> emigrants = new ArrayList<>();
+            int bestIsland = -1;
+            for (int island = 0; island < islands; island++) {
+                try {
+                    IslandWorker.expect(in[island], IslandWorker.REPORT);
+                } catch (SocketTimeoutException e) {
+                    throw new IOException("Island " + island + " sent no report for " + reportTimeoutMillis + " ms", e);
+                }
+                int islandGenerations = in[island].readInt();
+                IslandWorker.Migrant islandBest = IslandWorker.readMigrant(in[island]);
+                emigrants.add(IslandWorker.readMigrants(in[island]));
+                if (island == 0) {
+                    generations += islandGenerations;
+                }
+                if (best == null || islandBest.fitness > best.fitness) {
+                    best = islandBest;
+                    bestIsland = island;
+                }
+            }
+            System.out.println("Epoch " + epoch + " Accuracy: " + best.fitness
+                    + (bestIsland >= 0 ? " (improved on island " + bestIsland + ")" : ""));
+
+            EvolutionEngine.StopReason reason = best.fitness >= targetFitness
+                    ? EvolutionEngine.StopReason.TARGET_REACHED
+                    : epoch >= epochs ? EvolutionEngine.StopReason.GENERATION_LIMIT : null;
+            if (reason != null) {
+                for (DataOutputStream output : out) {
+                    output.writeByte(IslandWorker.STOP);
+                    output.flush();
+                }
+                List<Chromosome> population = new ArrayList<>();
+                List<Double> fitness = new ArrayList<>();
+                for (List<IslandWorker.Migrant> sent : emigrants) {
+                    for (IslandWorker.Migrant migrant : sent) {
+                        population.add(migrant.chromosome);
+                        fitness.add(migrant.fitness);
+                    }
+                }
+                return new EvolutionEngine.Result(best.chromosome, best.fitness, generations, reason, population,
+                        fitness.stream().mapToDouble(Double::doubleValue).toArray());
+            }
+
+            List<List<IslandWorker.Migrant>> immigrants = new ArrayList<>();
+            for (int island = 0; island < islands; island++) {
+                immigrants.add(new ArrayList<>());
+            }
+            for (int island = 0; island < islands; island++) {
+                for (int destination : topology.destinations(island, islands)) {
+                    immigrants.get(destination).addAll(emigrants.get(island));
+                }
+            }
+            for (int island = 0; island < islands; island++) {
+                out[island].writeByte(IslandWorker.MIGRATE);
+                IslandWorker.writeMigrants(out[island], immigrants.get(island));
+                out[island].flush();
+            }
+        }
+    }
+
+    private Process startProcess(String host, int port, int island) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        List<String> options = ManagementFactory.getRuntimeMXBean().getInputArguments();
+        for (int i = 0; i < options.size(); i++) {
+            String option = options.get(i);
+            if (inherited(option)) {
+                command.add(option);
+                // The two-argument form of a module option carries its value separately
+                if (option.startsWith("--add-") && !option.contains("=") && i + 1 < options.size()) {
+                    command.add(options.get(++i));
+                }
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(IslandWorker.class.getName());
+        command.add(host);
+        command.add(Integer.toString(port));
+        command.add(Integer.toString(island));
+        ProcessBuilder builder = new ProcessBuilder(command).inheritIO();
+        // Passed in the environment so it does not show up in process listings
+        builder.environment().put(IslandWorker.TOKEN_VARIABLE, token);
+        return builder.start();
+    }
+
+    /**
+     * @return Whether a worker process should get this JVM option: heap,
+     *         module and system property options, but not debugger, agent or
+     *         management options that would clash between workers
+     */
+    static boolean inherited(String option) {
+        for (String excluded : EXCLUDED_PROPERTIES) {
+            if (option.startsWith(excluded)) {
+                return false;
+            }
+        }
+        for (String prefix : INHERITED_OPTIONS) {
+            if (option.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Thread startThread(String host, int port, int island) {
+        Thread thread = new Thread(() -> {
+            try {
+                IslandWorker.run(host, port, island, token);
+            } catch (IOException e) {
+                System.err.println("Island " + island + " failed: " + e);
+            }
+        }, "island-" + island);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Waits for the workers to exit after their connections are closed, and
+     * kills any worker process that does not.
+     */
+    private static void awaitWorkers(List<Process> processes, List<Thread> threads) {
+        try {
+            for (Process process : processes) {
+                if (!process.waitFor(CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    process.destroyForcibly();
+                }
+            }
+            for (Thread thread : threads) {
+                thread.join(CONNECT_TIMEOUT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            processes.forEach(Process::destroyForcibly);
+        }
+    }
+
+    /**
+     * @return The binary dataset, or a temporary binary copy of the text
+     *         files if it does not exist, since workers can only map the
+     *         binary format
+     */
+    private static Path binaryCopy(Path binary, Path data, Path labels) throws IOException {
+        if (Files.isRegularFile(binary)) {
+            return binary.toAbsolutePath();
+        }
+        Path copy = Files.createTempFile("island", ".knnb");
+        copy.toFile().deleteOnExit();
+        BinaryDataset.write(BinaryDataset.readOrParseText(binary, data, labels), copy);
+        return copy;
+    }
+}
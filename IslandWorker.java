@@ -0,0 +1,380 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+/**
+ * One island of the island-model genetic algorithm run by
+ * {@link IslandCoordinator}.
+ * <p>
+ * A worker connects to the coordinator, receives a {@link Config}, maps the
+ * training and test sets read-only with {@link MappedDataset} and evolves its
+ * own population with an {@link EvolutionEngine} configured like kNN2. After
+ * every {@code interval} generations it reports its best member and its
+ * {@code migrants} fittest distinct members, then waits for the coordinator
+ * to either stop it or send migrants from other islands, which replace its
+ * least fit members.
+ * <p>
+ * The protocol is a sequence of messages over one TCP connection, each a
+ * type byte followed by big-endian fields as written by
+ * {@link DataOutputStream}:
+ * <pre>
+ * HELLO   worker to coordinator  token (as by writeUTF), island
+ * CONFIG  coordinator to worker  see {@link Config#write}
+ * REPORT  worker to coordinator  generations, best migrant, migrant list
+ * MIGRATE coordinator to worker  migrant list
+ * STOP    coordinator to worker
+ * </pre>
+ * A chromosome is sent as its length followed by its packed words, and a
+ * migrant as its chromosome followed by its fitness.
+ *
+ * @version 1.0
+ */
+public class IslandWorker {
+
+    static final byte HELLO = 1;
+    static final byte CONFIG = 2;
+    static final byte REPORT = 3;
+    static final byte MIGRATE = 4;
+    static final byte STOP = 5;
+
+    /** Environment variable holding the token that admits a worker to a run. */
+    public static final String TOKEN_VARIABLE = "KNN_ISLAND_TOKEN";
+
+    private final MappedDataset train;
+    private final MappedDataset test;
+    private final Metric metric;
+    private final int k;
+    private final Voting voting;
+
+    /**
+     * @param train  Labelled training set
+     * @param test   Labelled set that candidate feature selections are
+     *               scored on
+     * @param metric Distance metric
+     * @param k      Number of neighbours
+     * @param voting How neighbours elect a label
+     */
+    public IslandWorker(MappedDataset train, MappedDataset test, Metric metric, int k, Voting voting) {
+        if (!train.hasLabels() || !test.hasLabels()) {
+            throw new IllegalArgumentException("Both datasets need labels");
+        }
+        if (train.cols() != test.cols()) {
+            throw new IllegalArgumentException(
+                    "Training set has " + train.cols() + " features but test set has " + test.cols());
+        }
+        this.train = train;
+        this.test = test;
+        this.metric = metric;
+        this.k = k;
+        this.voting = voting;
+    }
+
+    /**
+     * Classifies the test set by brute force over the mapped training set,
+     * using only the selected features. Distances, tie-breaking and the
+     * accuracy formula match kNN2.evaluateFitness.
+     *
+     * @return The accuracy as a percentage
+     */
+    public double accuracy(Chromosome chromosome) {
+        int[] features = chromosome.features();
+        NeighbourHeap heap = new NeighbourHeap(Math.min(k, train.rows()));
+        int correct = 0;
+        for (int q = 0; q < test.rows(); q++) {
+            heap.clear();
+            for (int r = 0; r < train.rows(); r++) {
+                heap.offer(r, metric.finish(test.accumulate(metric, q, train, r, features)));
+            }
+            Neighbours neighbours = heap.toNeighbours();
+            // Voting only looks labels up by rank, so neighbour r is renumbered r
+            int[] ranks = IntStream.range(0, neighbours.size()).toArray();
+            int[] labels = new int[ranks.length];
+            for (int r = 0; r < ranks.length; r++) {
+                labels[r] = train.label(neighbours.index(r));
+            }
+            if (voting.vote(new Neighbours(ranks, neighbours.distances()), labels) == test.label(q)) {
+                correct++;
+            }
+        }
+        return (double) correct / test.rows() * 100;
+    }
+
+    /**
+     * Connects to a coordinator and evolves one island until told to stop.
+     *
+     * @param host   Coordinator host
+     * @param port   Coordinator port
+     * @param island This island's number
+     * @param token  The run's token, which the coordinator checks
+     * @throws IOException If the connection fails, the coordinator breaks the
+     *                     protocol, or the datasets cannot be mapped
+     */
+    public static void run(String host, int port, int island, String token) throws IOException {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeByte(HELLO);
+            out.writeUTF(token);
+            out.writeInt(island);
+            out.flush();
+            expect(in, CONFIG);
+            Config config = Config.read(in);
+            IslandWorker worker = new IslandWorker(MappedDataset.open(Paths.get(config.train), true),
+                    MappedDataset.open(Paths.get(config.test), true), config.metric, config.k, config.voting);
+            worker.evolve(in, out, config, new RandomStreams(config.seed).substreams(island));
+        }
+    }
+
+    /**
+     * Runs a worker process. The run's token is read from the
+     * {@value #TOKEN_VARIABLE} environment variable.
+     *
+     * @param args Coordinator host, coordinator port and island number
+     */
+    public static void main(String[] args) throws IOException {
+        String token = System.getenv(TOKEN_VARIABLE);
+        if (args.length != 3 || token == null) {
+            System.out.println("Usage: " + TOKEN_VARIABLE + "=<token> java IslandWorker <host> <port> <island>");
+            return;
+        }
+        run(args[0], Integer.parseInt(args[1]), Integer.parseInt(args[2]), token);
+    }
+
+    private void evolve(DataInputStream in, DataOutputStream out, Config config, RandomStreams streams)
+            throws IOException {
+        // Survivors, duplicates and immigrants reuse their earlier score
+        FitnessCache<Chromosome> cache = new FitnessCache<>(kNN2.FITNESS_CACHE_SIZE);
+        EvolutionEngine.PopulationFitness fitness = population -> {
+            double[] scores = new double[population.size()];
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = await(cache.computeIfAbsent(population.get(i),
+                        chromosome -> CompletableFuture.completedFuture(accuracy(chromosome))));
+            }
+            return scores;
+        };
+        EvolutionEngine engine = new EvolutionEngine(kNN2.SELECTION, kNN2.CROSSOVER,
+                MutationOperator.bitFlip(config.mutationRate), config.populationSize,
+                Math.min(kNN2.ELITISM, config.populationSize - 1), kNN2.CROSSOVER_RATE);
+        EvolutionEngine.Budget epoch = new EvolutionEngine.Budget(config.interval, Long.MAX_VALUE,
+                Integer.MAX_VALUE, Double.POSITIVE_INFINITY);
+
+        // Each island has its own streams, so the run does not depend on how islands are scheduled
+        RandomGenerator initial = streams.stream(kNN2.INITIAL_POPULATION_STREAM);
+        RandomGenerator random = streams.stream(kNN2.EVOLUTION_STREAM);
+        List<Chromosome> population = new ArrayList<>();
+        for (int i = 0; i < config.populationSize; i++) {
+            population.add(Chromosome.random(test.cols(), initial));
+        }
+        while (true) {
+            EvolutionEngine.Result result = engine.run(population, fitness, epoch, random, null);
+            population = new ArrayList<>(result.population());
+            double[] scores = result.fitness();
+            int[] ranked = EvolutionEngine.rank(scores);
+            List<Migrant> emigrants = new ArrayList<>();
+            Set<Chromosome> chosen = new HashSet<>();
+            for (int i = 0; i < ranked.length && emigrants.size() < config.migrants; i++) {
+                Chromosome member = population.get(ranked[i]);
+                if (chosen.add(member)) {
+                    emigrants.add(new Migrant(member, scores[ranked[i]]));
+                }
+            }
+            out.writeByte(REPORT);
+            out.writeInt(result.generations());
+            writeMigrant(out, new Migrant(result.best(), result.bestFitness()));
+            writeMigrants(out, emigrants);
+            out.flush();
+
+            byte type = in.readByte();
+            if (type == STOP) {
+                return;
+            }
+            if (type != MIGRATE) {
+                throw new IOException("Expected message " + MIGRATE + " or " + STOP + " but got " + type);
+            }
+            // Immigrants replace the least fit members, skipping any the island already has
+            Set<Chromosome> present = new HashSet<>(population);
+            int slot = ranked.length - 1;
+            for (Migrant immigrant : readMigrants(in)) {
+                if (slot >= 0 && present.add(immigrant.chromosome)) {
+                    cache.computeIfAbsent(immigrant.chromosome,
+                            chromosome -> CompletableFuture.completedFuture(immigrant.fitness));
+                    population.set(ranked[slot--], immigrant.chromosome);
+                }
+            }
+        }
+    }
+
+    private static double await(Future<Double> score) {
+        try {
+            return score.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scoring the population", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Scoring a candidate failed", e.getCause());
+        }
+    }
+
+    static void expect(DataInputStream in, byte type) throws IOException {
+        byte actual = in.readByte();
+        if (actual != type) {
+            throw new IOException("Expected message " + type + " but got " + actual);
+        }
+    }
+
+    static void writeMigrant(DataOutputStream out, Migrant migrant) throws IOException {
+        long[] words = migrant.chromosome.toLongArray();
+        out.writeInt(migrant.chromosome.length());
+        for (long word : words) {
+            out.writeLong(word);
+        }
+        out.writeDouble(migrant.fitness);
+    }
+
+    static Migrant readMigrant(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Negative chromosome length " + length);
+        }
+        long[] words = new long[(length + 63) >>> 6];
+        for (int w = 0; w < words.length; w++) {
+            words[w] = in.readLong();
+        }
+        try {
+            return new Migrant(Chromosome.valueOf(words, length), in.readDouble());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed chromosome", e);
+        }
+    }
+
+    static void writeMigrants(DataOutputStream out, List<Migrant> migrants) throws IOException {
+        out.writeInt(migrants.size());
+        for (Migrant migrant : migrants) {
+            writeMigrant(out, migrant);
+        }
+    }
+
+    static List<Migrant> readMigrants(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Negative migrant count " + count);
+        }
+        List<Migrant> migrants = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            migrants.add(readMigrant(in));
+        }
+        return migrants;
+    }
+
+    /**
+     * A chromosome travelling between islands, with the fitness its home
+     * island measured. Every island scores on the same data, so the receiver
+     * can trust it.
+     */
+    static final class Migrant {
+
+        final Chromosome chromosome;
+        final double fitness;
+
+        Migrant(Chromosome chromosome, double fitness) {
+            this.chromosome = chromosome;
+            this.fitness = fitness;
+        }
+    }
+
+    /**
+     * Everything a worker needs to evolve its island. Dataset paths are
+     * resolved on the worker, so remote workers need the files at the same
+     * location.
+     */
+    static final class Config {
+
+        final String train;
+        final String test;
+        final Metric metric;
+        final int k;
+        final Voting voting;
+        final int populationSize;
+        final double mutationRate;
+        final int interval;
+        final int migrants;
+        final long seed;
+
+        /**
+         * @param train          Binary training set
+         * @param test           Binary set candidates are scored on
+         * @param metric         Distance metric
+         * @param k              Number of neighbours
+         * @param voting         How neighbours elect a label
+         * @param populationSize Members per island
+         * @param mutationRate   Chance of each bit being flipped
+         * @param interval       Generations between migrations
+         * @param migrants       Members each island sends per migration
+         * @param seed           Run seed; each island draws from its own
+         *                       {@link RandomStreams#substreams} of it
+         */
+        Config(String train, String test, Metric metric, int k, Voting voting, int populationSize,
+                double mutationRate, int interval, int migrants, long seed) {
+            if (k < 1 || populationSize < 2 || interval < 1 || migrants < 0) {
+                throw new IllegalArgumentException("Invalid island configuration: k " + k + ", population "
+                        + populationSize + ", interval " + interval + ", migrants " + migrants);
+            }
+            this.train = train;
+            this.test = test;
+            this.metric = metric;
+            this.k = k;
+            this.voting = voting;
+            this.populationSize = populationSize;
+            this.mutationRate = mutationRate;
+            this.interval = interval;
+            this.migrants = migrants;
+            this.seed = seed;
+        }
+
+        /**
+         * Writes the CONFIG message: type byte, train and test paths, metric
+         * name, k, voting name, population size, mutation rate, interval,
+         * migrants and seed.
+         */
+        void write(DataOutputStream out) throws IOException {
+            out.writeByte(CONFIG);
+            out.writeUTF(train);
+            out.writeUTF(test);
+            out.writeUTF(metric.name());
+            out.writeInt(k);
+            out.writeUTF(voting.name());
+            out.writeInt(populationSize);
+            out.writeDouble(mutationRate);
+            out.writeInt(interval);
+            out.writeInt(migrants);
+            out.writeLong(seed);
+        }
+
+        /**
+         * Reads the body of a CONFIG message, after its type byte.
+         */
+        static Config read(DataInputStream in) throws IOException {
+            try {
+                return new Config(in.readUTF(), in.readUTF(), Metric.valueOf(in.readUTF()), in.readInt(),
+                        Voting.valueOf(in.readUTF()), in.readInt(), in.readDouble(), in.readInt(), in.readInt(),
+                        in.readLong());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Malformed configuration", e);
+            }
+        }
+    }
+}
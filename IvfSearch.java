@@ -0,0 +1,253 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Approximate k-nearest-neighbour search with an inverted-file (IVF) index.
+ * <p>
+ * The training set is partitioned by k-means into a number of lists. A query
+ * ranks the list centroids and scans only the rows of the closest
+ * {@code probes} lists. Raising {@code probes} trades speed for recall; with
+ * every list probed the search is exact. Candidate distances are always
+ * computed exactly, so only which rows are considered is approximate.
+ * <p>
+ * Clustering uses the search metric: rows join their nearest centroid under
+ * it, and a centroid moves to the mean of its rows for the Euclidean metric
+ * or to their coordinate-wise median for the Manhattan metric, the point
+ * that minimises the summed distance in each case.
+ *
+ * @version 1.0
+ */
+public class IvfSearch implements NeighbourSearch {
+
+    /** Default number of k-means iterations when building the index. */
+    public static final int DEFAULT_ITERATIONS = 10;
+
+    private final Dataset train;
+    private final Metric metric;
+    private final Dataset centroids;
+    // ROWS OF LIST l ARE listRows[listStart[l] .. listStart[l + 1])
+    private final int[] listStart;
+    private final int[] listRows;
+    private final int probes;
+
+    private IvfSearch(Dataset train, Metric metric, Dataset centroids, int[] listStart, int[] listRows,
+            int probes) {
+        if (probes < 1) {
+            throw new IllegalArgumentException("Probes must be at least 1 but was " + probes);
+        }
+        this.train = train;
+        this.metric = metric;
+        this.centroids = centroids;
+        this.listStart = listStart;
+        this.listRows = listRows;
+        this.probes = Math.min(probes, centroids.rows());
+    }
+
+    /**
+     * Clusters the training set and builds the inverted lists.
+     *
+     * @param train      Training patterns to index
+     * @param metric     Distance metric used for clustering and ranking
+     * @param lists      Number of k-means clusters; about the square root of
+     *                   the row count is a good start
+     * @param probes     Number of closest lists scanned per query
+     * @param iterations Number of k-means iterations
+     * @param seed       Seed for choosing the initial centroids
+     */
+    public static IvfSearch build(Dataset train, Metric metric, int lists, int probes, int iterations, long seed) {
+        int rows = train.rows();
+        int cols = train.cols();
+        if (lists < 1 || lists > rows) {
+            throw new IllegalArgumentException("Need between 1 and " + rows + " lists but got " + lists);
+        }
+        Random random = new Random(seed);
+        float[] centres = new float[lists * cols];
+        int[] initial = sampleRows(rows, lists, random);
+        for (int l = 0; l < lists; l++) {
+            System.arraycopy(train.values(), train.offset(initial[l]), centres, l * cols, cols);
+        }
+        Dataset centroids = new Dataset(centres, lists, cols);
+
+        int[] assignment = new int[rows];
+        for (int iteration = 0; iteration <= iterations; iteration++) {
+            assign(train, metric, centroids, assignment);
+            if (iteration == iterations) {
+                break;
+            }
+            if (metric == Metric.MANHATTAN) {
+                recentreOnMedians(train, centroids, assignment, random);
+            } else {
+                recentre(train, centroids, assignment, random);
+            }
+        }
+
+        int[] listStart = new int[lists + 1];
+        for (int row = 0; row < rows; row++) {
+            listStart[assignment[row] + 1]++;
+        }
+        for (int l = 0; l < lists; l++) {
+            listStart[l + 1] += listStart[l];
+        }
+        int[] fill = listStart.clone();
+        int[] listRows = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            listRows[fill[assignment[row]]++] = row;
+        }
+        return new IvfSearch(train, metric, centroids, listStart, listRows, probes);
+    }
+
+    /**
+     * Index with about sqrt(rows) lists and the default iteration count.
+     */
+    public static IvfSearch build(Dataset train, Metric metric, int probes, long seed) {
+        int lists = Math.max(1, (int) Math.round(Math.sqrt(train.rows())));
+        return build(train, metric, lists, probes, DEFAULT_ITERATIONS, seed);
+    }
+
+    /**
+     * @return A search over the same index that scans a different number of
+     *         lists per query
+     */
+    public IvfSearch withProbes(int newProbes) {
+        return new IvfSearch(train, metric, centroids, listStart, listRows, newProbes);
+    }
+
+    @Override
+    public Neighbours query(float[] query, int offset, int k) {
+        NeighbourHeap closestLists = new NeighbourHeap(probes);
+        float[] centres = centroids.values();
+        for (int l = 0; l < centroids.rows(); l++) {
+            closestLists.offer(l, metric.distance(query, offset, centres, centroids.offset(l), train.cols()));
+        }
+        int[] probed = closestLists.toNeighbours().indices();
+
+        NeighbourHeap heap = new NeighbourHeap(Math.min(k, train.rows()));
+        float[] values = train.values();
+        for (int list : probed) {
+            for (int i = listStart[list]; i < listStart[list + 1]; i++) {
+                int row = listRows[i];
+                heap.offer(row, metric.distance(query, offset, values, train.offset(row), train.cols()));
+            }
+        }
+        return heap.toNeighbours();
+    }
+
+    public int lists() {
+        return centroids.rows();
+    }
+
+    public int probes() {
+        return probes;
+    }
+
+    /**
+     * Assigns every row to its nearest centroid. The accumulated sum ranks
+     * centroids as the finished distance does.
+     */
+    private static void assign(Dataset train, Metric metric, Dataset centroids, int[] assignment) {
+        float[] values = train.values();
+        float[] centres = centroids.values();
+        for (int row = 0; row < train.rows(); row++) {
+            int best = 0;
+            double bestDistance = Double.POSITIVE_INFINITY;
+            for (int l = 0; l < centroids.rows(); l++) {
+                double distance = metric.accumulate(values, train.offset(row), centres,
+                        centroids.offset(l), train.cols());
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = l;
+                }
+            }
+            assignment[row] = best;
+        }
+    }
+
+    /**
+     * Moves every centroid to the mean of its rows. An empty cluster is
+     * restarted on a random row.
+     */
+    private static void recentre(Dataset train, Dataset centroids, int[] assignment, Random random) {
+        int cols = train.cols();
+        double[] sums = new double[centroids.rows() * cols];
+        int[] counts = new int[centroids.rows()];
+        float[] values = train.values();
+        for (int row = 0; row < train.rows(); row++) {
+            int base = assignment[row] * cols;
+            int offset = train.offset(row);
+            for (int c = 0; c < cols; c++) {
+                sums[base + c] += values[offset + c];
+            }
+            counts[assignment[row]]++;
+        }
+        float[] centres = centroids.values();
+        for (int l = 0; l < centroids.rows(); l++) {
+            if (counts[l] == 0) {
+                System.arraycopy(values, train.offset(random.nextInt(train.rows())), centres, l * cols, cols);
+                continue;
+            }
+            for (int c = 0; c < cols; c++) {
+                centres[l * cols + c] = (float) (sums[l * cols + c] / counts[l]);
+            }
+        }
+    }
+
+    /**
+     * Moves every centroid to the coordinate-wise median of its rows, taking
+     * the mean of the two middle values for an even count. An empty cluster
+     * is restarted on a random row.
+     */
+    private static void recentreOnMedians(Dataset train, Dataset centroids, int[] assignment, Random random) {
+        int cols = train.cols();
+        int lists = centroids.rows();
+        int[] start = new int[lists + 1];
+        for (int row = 0; row < train.rows(); row++) {
+            start[assignment[row] + 1]++;
+        }
+        for (int l = 0; l < lists; l++) {
+            start[l + 1] += start[l];
+        }
+        int[] fill = start.clone();
+        int[] members = new int[train.rows()];
+        for (int row = 0; row < train.rows(); row++) {
+            members[fill[assignment[row]]++] = row;
+        }
+        float[] values = train.values();
+        float[] centres = centroids.values();
+        float[] column = new float[train.rows()];
+        for (int l = 0; l < lists; l++) {
+            int count = start[l + 1] - start[l];
+            if (count == 0) {
+                System.arraycopy(values, train.offset(random.nextInt(train.rows())), centres, l * cols, cols);
+                continue;
+            }
+            for (int c = 0; c < cols; c++) {
+                for (int i = 0; i < count; i++) {
+                    column[i] = values[train.offset(members[start[l] + i]) + c];
+                }
+                Arrays.sort(column, 0, count);
+                centres[l * cols + c] = count % 2 == 1 ? column[count / 2]
+                        : (float) (((double) column[count / 2 - 1] + column[count / 2]) / 2);
+            }
+        }
+    }
+
+    /**
+     * Picks {@code count} distinct row numbers with a partial Fisher-Yates
+     * shuffle.
+     */
+    private static int[] sampleRows(int rows, int count, Random random) {
+        int[] all = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            all[i] = i;
+        }
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(rows - i);
+            int swap = all[i];
+            all[i] = all[j];
+            all[j] = swap;
+        }
+        int[] sample = new int[count];
+        System.arraycopy(all, 0, sample, 0, count);
+        return sample;
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ * Exact k-nearest-neighbour search over a KD-tree built once from the
+ * training set.
+ * <p>
+ * Each node splits its rows at the median of the dimension with the widest
+ * spread and stores the bounding box of its rows. A query descends into the
+ * nearer child first and skips any node whose box is further away than the
+ * current k-th best distance. The box distance is computed with the same
+ * float differences and double sums as {@link Metric}, so it never exceeds
+ * the true distance of a row inside the box. Pruning therefore never changes
+ * the result: neighbours, distances and tie order are the same as for
+ * {@link BruteForceSearch}.
+ * <p>
+ * As with any KD-tree, pruning becomes less effective as dimensionality
+ * grows; {@link IndexBenchmark} shows where it pays off for a given dataset.
+ *
+ * @version 1.0
+ */
+public class KdTreeSearch implements NeighbourSearch {
+
+    /** Default maximum number of rows in a leaf. */
+    public static final int DEFAULT_LEAF_SIZE = 16;
+
+    private final Dataset train;
+    private final Metric metric;
+    private final int leafSize;
+    // TRAINING ROW INDICES, PERMUTED SO THAT EVERY NODE OWNS A CONTIGUOUS RANGE
+    private final int[] order;
+    private final int[] nodeStart;
+    private final int[] nodeEnd;
+    private final int[] leftChild;
+    private final int[] rightChild;
+    // PER-NODE BOUNDING BOXES, cols VALUES PER NODE
+    private final float[] boxLow;
+    private final float[] boxHigh;
+    private int nodeCount;
+
+    /**
+     * @param train    Training patterns to index
+     * @param metric   Distance metric used for ranking
+     * @param leafSize Maximum number of rows in a leaf, at least 1
+     */
+    public KdTreeSearch(Dataset train, Metric metric, int leafSize) {
+        if (leafSize < 1) {
+            throw new IllegalArgumentException("Leaf size must be at least 1 but was " + leafSize);
+        }
+        this.train = train;
+        this.metric = metric;
+        this.leafSize = leafSize;
+        int rows = train.rows();
+        int maxNodes = countNodes(rows, leafSize);
+        this.order = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            order[i] = i;
+        }
+        this.nodeStart = new int[maxNodes];
+        this.nodeEnd = new int[maxNodes];
+        this.leftChild = new int[maxNodes];
+        this.rightChild = new int[maxNodes];
+        this.boxLow = new float[maxNodes * train.cols()];
+        this.boxHigh = new float[maxNodes * train.cols()];
+        build(0, rows);
+    }
+
+    /**
+     * KD-tree with the default leaf size.
+     */
+    public KdTreeSearch(Dataset train, Metric metric) {
+        this(train, metric, DEFAULT_LEAF_SIZE);
+    }
+
+    @Override
+    public Neighbours query(float[] query, int offset, int k) {
+        NeighbourHeap heap = new NeighbourHeap(Math.min(k, train.rows()));
+        if (train.rows() > 0) {
+            search(0, query, offset, heap);
+        }
+        return heap.toNeighbours();
+    }
+
+    public int leafSize() {
+        return leafSize;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return Number of nodes a tree over {@code rows} rows can have, assuming
+     *         every oversized node is split at its median
+     */
+    private static int countNodes(int rows, int leafSize) {
+        if (rows <= leafSize) {
+            return 1;
+        }
+        return 1 + countNodes(rows >>> 1, leafSize) + countNodes(rows - (rows >>> 1), leafSize);
+    }
+
+    /**
+     * Builds the subtree over order[from, to) and returns its node number.
+     */
+    private int build(int from, int to) {
+        int node = nodeCount++;
+        nodeStart[node] = from;
+        nodeEnd[node] = to;
+        leftChild[node] = -1;
+        rightChild[node] = -1;
+
+        int cols = train.cols();
+        float[] values = train.values();
+        int box = node * cols;
+        for (int c = 0; c < cols; c++) {
+            boxLow[box + c] = Float.POSITIVE_INFINITY;
+            boxHigh[box + c] = Float.NEGATIVE_INFINITY;
+        }
+        for (int i = from; i < to; i++) {
+            int base = train.offset(order[i]);
+            for (int c = 0; c < cols; c++) {
+                float v = values[base + c];
+                boxLow[box + c] = Math.min(boxLow[box + c], v);
+                boxHigh[box + c] = Math.max(boxHigh[box + c], v);
+            }
+        }
+        if (to - from <= leafSize) {
+            return node;
+        }
+
+        int splitDim = 0;
+        float widest = -1;
+        for (int c = 0; c < cols; c++) {
+            float spread = boxHigh[box + c] - boxLow[box + c];
+            if (spread > widest) {
+                widest = spread;
+                splitDim = c;
+            }
+        }
+        if (widest <= 0) {
+            // Every row in this node is identical
+            return node;
+        }
+        int mid = (from + to) >>> 1;
+        select(from, to - 1, mid, splitDim);
+        leftChild[node] = build(from, mid);
+        rightChild[node] = build(mid, to);
+        return node;
+    }
+
+    /**
+     * Quickselect: partially orders order[from, to] so that position nth holds
+     * the row that would be there if the range were sorted on one dimension.
+     */
+    private void select(int from, int to, int nth, int dim) {
+        float[] values = train.values();
+        while (to > from) {
+            int mid = (from + to) >>> 1;
+            float pivot = values[train.offset(order[mid]) + dim];
+            int i = from;
+            int j = to;
+            while (i <= j) {
+                while (values[train.offset(order[i]) + dim] < pivot) {
+                    i++;
+                }
+                while (values[train.offset(order[j]) + dim] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (nth <= j) {
+                to = j;
+            } else if (nth >= i) {
+                from = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void search(int node, float[] query, int offset, NeighbourHeap heap) {
+        if (leftChild[node] < 0) {
+            float[] values = train.values();
+            int cols = train.cols();
+            for (int i = nodeStart[node]; i < nodeEnd[node]; i++) {
+                int row = order[i];
+                heap.offer(row, metric.distance(query, offset, values, train.offset(row), cols));
+            }
+            return;
+        }
+        int near = leftChild[node];
+        int far = rightChild[node];
+        double nearBound = boxDistance(near, query, offset);
+        double farBound = boxDistance(far, query, offset);
+        if (farBound < nearBound) {
+            int swapNode = near;
+            near = far;
+            far = swapNode;
+            double swapBound = nearBound;
+            nearBound = farBound;
+            farBound = swapBound;
+        }
+        // Equal distances may still win on row index, so only strictly further boxes are pruned
+        if (nearBound <= heap.threshold()) {
+            Metrics.KD_TREE_PRUNING.miss();
+            search(near, query, offset, heap);
+        } else {
+            Metrics.KD_TREE_PRUNING.hit();
+        }
+        if (farBound <= heap.threshold()) {
+            Metrics.KD_TREE_PRUNING.miss();
+            search(far, query, offset, heap);
+        } else {
+            Metrics.KD_TREE_PRUNING.hit();
+        }
+    }
+
+    /**
+     * Lower bound on the distance from the query to any row in a node's box.
+     * Per-dimension gaps are summed in feature order exactly as the metric
+     * sums differences, with zero for dimensions the query lies within.
+     */
+    private double boxDistance(int node, float[] query, int offset) {
+        int cols = train.cols();
+        int box = node * cols;
+        double sum = 0;
+        for (int c = 0; c < cols; c++) {
+            float q = query[offset + c];
+            float gap;
+            if (q < boxLow[box + c]) {
+                gap = boxLow[box + c] - q;
+            } else if (q > boxHigh[box + c]) {
+                gap = q - boxHigh[box + c];
+            } else {
+                continue;
+            }
+            sum += metric == Metric.EUCLIDEAN ? (double) gap * gap : gap;
+        }
+        return metric.finish(sum);
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Brute-force search whose distances come from a {@link DistanceKernel},
+ * normally the SIMD one from {@link DistanceKernels#best()}.
+ * <p>
+ * Distances agree with {@link BruteForceSearch} only within
+ * {@link DistanceKernels#RELATIVE_TOLERANCE}, so rows whose distances are
+ * closer than that may swap places. With a feature mask the search falls
+ * back to the scalar masked kernel of {@link Metric}.
+ *
+ * @version 1.0
+ */
+public class KernelBruteForceSearch extends BruteForceSearch {
+
+    private final DistanceKernel kernel;
+
+    /**
+     * @param train  Training patterns to search
+     * @param metric Distance metric used for ranking
+     * @param kernel Kernel computing the un-finished distance sums
+     */
+    public KernelBruteForceSearch(Dataset train, Metric metric, DistanceKernel kernel) {
+        this(train, metric, null, kernel);
+    }
+
+    /**
+     * @param train    Training patterns to search
+     * @param metric   Distance metric used for ranking
+     * @param features Column indices to compare, or null for every column
+     * @param kernel   Kernel computing the un-finished distance sums of
+     *                 unmasked searches
+     */
+    public KernelBruteForceSearch(Dataset train, Metric metric, int[] features, DistanceKernel kernel) {
+        super(train, metric, features);
+        this.kernel = kernel;
+    }
+
+    /**
+     * Search using the best kernel available in this JVM.
+     */
+    public KernelBruteForceSearch(Dataset train, Metric metric) {
+        this(train, metric, DistanceKernels.best());
+    }
+
+    @Override
+    protected void scan(float[] query, int offset, int from, int to, NeighbourHeap heap) {
+        if (features != null) {
+            super.scan(query, offset, from, to, heap);
+            return;
+        }
+        float[] values = train.values();
+        int length = train.cols();
+        for (int j = from; j < to; j++) {
+            double sum = kernel.accumulate(metric, query, offset, values, train.offset(j), length);
+            heap.offer(j, metric.finish(sum));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * k-nearest-neighbour classifier over any {@link NeighbourSearch}.
+ * The search keeps only the k best candidates per query in a bounded heap,
+ * so raising k costs O(log k) per training row rather than a full sort of the
+ * distance row.
+ *
+ * @version 1.0
+ */
+public class KnnClassifier {
+
+    private final NeighbourSearch search;
+    private final int[] trainLabels;
+    private final int k;
+    private final Voting voting;
+
+    /**
+     * @param search      Neighbour search over the training set
+     * @param trainLabels Labels of the training rows
+     * @param k           Number of neighbours taking part in each vote
+     * @param voting      How neighbours are combined into a label
+     */
+    public KnnClassifier(NeighbourSearch search, int[] trainLabels, int k, Voting voting) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1 but was " + k);
+        }
+        this.search = search;
+        this.trainLabels = trainLabels;
+        this.k = k;
+        this.voting = voting;
+    }
+
+    /**
+     * Brute-force classifier over a labelled training set.
+     */
+    public KnnClassifier(Dataset train, Metric metric, int k, Voting voting) {
+        this(new BruteForceSearch(train, metric), train.labels(), k, voting);
+    }
+
+    /**
+     * Predicts the label of a single query.
+     *
+     * @param query  Array holding the query features
+     * @param offset Index of the query's first feature
+     */
+    @SuppressWarnings("try")
+    public int predict(float[] query, int offset) {
+        Neighbours neighbours;
+        try (Metrics.Span span = Metrics.span(Metrics.Stage.DISTANCE)) {
+            neighbours = search.query(query, offset, k);
+        }
+        try (Metrics.Span span = Metrics.span(Metrics.Stage.VOTING)) {
+            return voting.vote(neighbours, trainLabels);
+        }
+    }
+
+    /**
+     * Predicts a label for every row of a query set.
+     */
+    @SuppressWarnings("try")
+    public int[] predict(Dataset queries) {
+        Neighbours[] neighbours;
+        try (Metrics.Span span = Metrics.span(Metrics.Stage.DISTANCE, queries.rows())) {
+            neighbours = search.queryAll(queries, k);
+        }
+        int[] predictions = new int[neighbours.length];
+        try (Metrics.Span span = Metrics.span(Metrics.Stage.VOTING, neighbours.length)) {
+            for (int i = 0; i < neighbours.length; i++) {
+                predictions[i] = voting.vote(neighbours[i], trainLabels);
+            }
+        }
+        return predictions;
+    }
+
+    public NeighbourSearch search() {
+        return search;
+    }
+
+    public int k() {
+        return k;
+    }
+
+    public Voting voting() {
+        return voting;
+    }
+}
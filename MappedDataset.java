@@ -0,0 +1,138 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Read-only, memory-mapped view of a file in the {@link BinaryDataset}
+ * format.
+ * <p>
+ * Unlike {@link BinaryDataset#read}, nothing is copied onto the heap: values
+ * are read straight from the mapping, so several processes working on the
+ * same file share one copy of it in the operating system's page cache. Rows
+ * are mapped in segments of at most {@value #SEGMENT_BYTES} bytes, each
+ * holding whole rows. The mappings stay valid after the file is closed and
+ * are released when this object is garbage collected.
+ *
+ * @version 1.0
+ */
+public final class MappedDataset {
+
+    /** Largest region mapped at once, a multiple of 4 bytes. */
+    private static final int SEGMENT_BYTES = 1 << 30;
+
+    private final Path path;
+    private final int rows;
+    private final int cols;
+    private final int rowsPerSegment;
+    private final FloatBuffer[] segments;
+    private final IntBuffer labels;
+
+    private MappedDataset(Path path, int rows, int cols, int rowsPerSegment, FloatBuffer[] segments,
+            IntBuffer labels) {
+        this.path = path;
+        this.rows = rows;
+        this.cols = cols;
+        this.rowsPerSegment = rowsPerSegment;
+        this.segments = segments;
+        this.labels = labels;
+    }
+
+    /**
+     * Maps a binary dataset.
+     *
+     * @param path     File written by {@link BinaryDataset#write}
+     * @param checksum Whether to verify the payload CRC, which touches every
+     *                 page of the file once
+     * @throws IOException If the file cannot be read, is not in this format,
+     *                     or fails its checksum
+     */
+    public static MappedDataset open(Path path, boolean checksum) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            BinaryDataset.Header header = BinaryDataset.readHeader(channel, path);
+            long rowBytes = (long) header.cols * Float.BYTES;
+            if (rowBytes > SEGMENT_BYTES || (long) header.rows * Integer.BYTES > SEGMENT_BYTES) {
+                throw new IOException(path + " has too many rows or columns to map");
+            }
+            int rowsPerSegment = rowBytes == 0 ? Math.max(1, header.rows) : (int) (SEGMENT_BYTES / rowBytes);
+            CRC32 crc = checksum ? new CRC32() : null;
+            FloatBuffer[] segments = new FloatBuffer[(header.rows + rowsPerSegment - 1) / rowsPerSegment];
+            long position = BinaryDataset.HEADER_BYTES;
+            for (int s = 0; s < segments.length; s++) {
+                long size = Math.min(rowsPerSegment, header.rows - (long) s * rowsPerSegment) * rowBytes;
+                segments[s] = map(channel, position, size, crc).asFloatBuffer();
+                position += size;
+            }
+            IntBuffer labels = header.hasLabels
+                    ? map(channel, position, (long) header.rows * Integer.BYTES, crc).asIntBuffer()
+                    : null;
+            if (crc != null && crc.getValue() != header.crc) {
+                throw new IOException(path + " failed its checksum");
+            }
+            return new MappedDataset(path, header.rows, header.cols, rowsPerSegment, segments, labels);
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public boolean hasLabels() {
+        return labels != null;
+    }
+
+    public float value(int row, int col) {
+        return segments[row / rowsPerSegment].get((row % rowsPerSegment) * cols + col);
+    }
+
+    /**
+     * @throws IllegalStateException If the file has no labels
+     */
+    public int label(int row) {
+        if (labels == null) {
+            throw new IllegalStateException(path + " has no labels");
+        }
+        return labels.get(row);
+    }
+
+    /**
+     * Sums the per-feature terms of the distance between a row of this
+     * dataset and a row of another, over a subset of features. The result is
+     * the same as {@link Metric#accumulate(float[], int, float[], int, int[])}
+     * on the loaded rows.
+     */
+    public double accumulate(Metric metric, int row, MappedDataset other, int otherRow, int[] features) {
+        FloatBuffer a = segments[row / rowsPerSegment];
+        int aBase = (row % rowsPerSegment) * cols;
+        FloatBuffer b = other.segments[otherRow / other.rowsPerSegment];
+        int bBase = (otherRow % other.rowsPerSegment) * other.cols;
+        double sum = 0;
+        for (int feature : features) {
+            sum += metric.term(a.get(aBase + feature), b.get(bBase + feature));
+        }
+        return sum;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long size, CRC32 crc)
+            throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (crc != null) {
+            crc.update(buffer.duplicate());
+        }
+        return buffer;
+    }
+}
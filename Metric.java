@@ -0,0 +1,129 @@
+/**
+ * Distance metrics supported by the nearest-neighbour searches.
+ * A distance is computed in two steps: {@link #accumulate} sums the
+ * per-feature terms in double precision and {@link #finish} turns that sum
+ * into the reported distance. Splitting the two lets callers rank on the raw
+ * sum where it preserves ordering.
+ *
+ * @version 1.0
+ */
+public enum Metric {
+
+    /** Square root of the sum of squared feature differences. */
+    EUCLIDEAN {
+        @Override
+        public double accumulate(float[] a, int aOffset, float[] b, int bOffset, int length) {
+            double sum = 0;
+            for (int k = 0; k < length; k++) {
+                double diff = a[aOffset + k] - b[bOffset + k];
+                sum += diff * diff;
+            }
+            return sum;
+        }
+
+        @Override
+        public double accumulate(float[] a, int aOffset, float[] b, int bOffset, int[] features) {
+            double sum = 0;
+            for (int feature : features) {
+                double diff = a[aOffset + feature] - b[bOffset + feature];
+                sum += diff * diff;
+            }
+            return sum;
+        }
+
+        @Override
+        public double term(float a, float b) {
+            double diff = a - b;
+            return diff * diff;
+        }
+
+        @Override
+        public double finish(double sum) {
+            return Math.sqrt(sum);
+        }
+    },
+
+    /** Sum of absolute feature differences. */
+    MANHATTAN {
+        @Override
+        public double accumulate(float[] a, int aOffset, float[] b, int bOffset, int length) {
+            double sum = 0;
+            for (int k = 0; k < length; k++) {
+                sum += Math.abs(a[aOffset + k] - b[bOffset + k]);
+            }
+            return sum;
+        }
+
+        @Override
+        public double accumulate(float[] a, int aOffset, float[] b, int bOffset, int[] features) {
+            double sum = 0;
+            for (int feature : features) {
+                sum += Math.abs(a[aOffset + feature] - b[bOffset + feature]);
+            }
+            return sum;
+        }
+
+        @Override
+        public double term(float a, float b) {
+            return Math.abs(a - b);
+        }
+
+        @Override
+        public double finish(double sum) {
+            return sum;
+        }
+    };
+
+    /**
+     * Sums the per-feature terms of the distance between two rows.
+     *
+     * @param a       Array holding the first row
+     * @param aOffset Index of the first row's first feature
+     * @param b       Array holding the second row
+     * @param bOffset Index of the second row's first feature
+     * @param length  Number of features to compare
+     * @return The un-finished sum of per-feature terms
+     */
+    public abstract double accumulate(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Sums the per-feature terms over a subset of features, reading them in
+     * place from the full rows instead of from a copy restricted to the subset.
+     *
+     * @param a        Array holding the first row
+     * @param aOffset  Index of the first row's first feature
+     * @param b        Array holding the second row
+     * @param bOffset  Index of the second row's first feature
+     * @param features Column indices to compare
+     * @return The un-finished sum of per-feature terms
+     */
+    public abstract double accumulate(float[] a, int aOffset, float[] b, int bOffset, int[] features);
+
+    /**
+     * The contribution of a single feature to the sum, for callers whose
+     * rows are not held in float arrays. Adding the terms in feature order
+     * gives exactly the result of {@link #accumulate}.
+     */
+    public abstract double term(float a, float b);
+
+    /**
+     * Converts an accumulated sum into the distance itself.
+     */
+    public abstract double finish(double sum);
+
+    /**
+     * @return The distance between two rows, in the double precision the sum
+     *         was accumulated in, so rows are ranked as the original double
+     *         sums ranked them
+     */
+    public double distance(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        return finish(accumulate(a, aOffset, b, bOffset, length));
+    }
+
+    /**
+     * @return The distance between two rows over a subset of features
+     */
+    public double distance(float[] a, int aOffset, float[] b, int bOffset, int[] features) {
+        return finish(accumulate(a, aOffset, b, bOffset, features));
+    }
+}
@@ -0,0 +1,296 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide latency, throughput, allocation and hit-rate counters for the
+ * kNN pipeline.
+ * <p>
+ * Instrumentation is switched on with {@code -Dknn.metrics=true}. The flag
+ * is read once into a static final field, so with it off every
+ * {@link #span} returns a shared no-op and every {@link Ratio} call is a
+ * constant-false branch the JIT removes.
+ * <p>
+ * Each {@link Stage} has a {@link LatencyHistogram} of span durations in
+ * nanoseconds, an item count for throughput, and the bytes allocated by the
+ * thread that opened the span. Work a stage hands to other threads, such as
+ * fork-join tiles or GA fitness tasks, is timed but its allocation is not
+ * counted. Results are available as a one-line summary, printed every
+ * {@code knn.metrics.period} seconds once {@link #startReporter} is called,
+ * and as a JSON snapshot, written to {@code knn.metrics.json} by
+ * {@link #writeConfiguredSnapshot}.
+ *
+ * @version 1.0
+ */
+public final class Metrics {
+
+    /** Whether instrumentation was enabled at start-up. */
+    public static final boolean ENABLED = Boolean.getBoolean("knn.metrics");
+
+    /** Fitness evaluations answered from {@link FitnessCache}. */
+    public static final Ratio FITNESS_CACHE = new Ratio("fitnessCache");
+    /** Fitness evaluations derived from a remembered chromosome rather than computed from scratch. */
+    public static final Ratio INCREMENTAL_FITNESS = new Ratio("incrementalFitness");
+    /** KD-tree nodes skipped by their bounding box, out of all nodes considered. */
+    public static final Ratio KD_TREE_PRUNING = new Ratio("kdTreePruning");
+
+    /**
+     * Pipeline stages that are timed.
+     */
+    public enum Stage {
+        /** Reading a dataset from text or binary files. */
+        LOAD,
+        /** Neighbour search, i.e. the distance computation. */
+        DISTANCE,
+        /** Turning neighbours into labels. */
+        VOTING,
+        /** One generation of the genetic algorithm. */
+        GA_GENERATION
+    }
+
+    private static final Ratio[] RATIOS = {FITNESS_CACHE, INCREMENTAL_FITNESS, KD_TREE_PRUNING};
+    private static final Map<Stage, StageMetrics> STAGES = new EnumMap<>(Stage.class);
+    private static final Span NO_OP = new Span(null, 0, 0, 0);
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+    private static final long STARTED = System.nanoTime();
+    private static ScheduledExecutorService reporter;
+
+    static {
+        for (Stage stage : Stage.values()) {
+            STAGES.put(stage, new StageMetrics());
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Starts timing a stage. Use in a try-with-resources block.
+     *
+     * @param stage The stage being timed
+     * @param items Number of items the span processes, for throughput
+     */
+    public static Span span(Stage stage, long items) {
+        if (!ENABLED) {
+            return NO_OP;
+        }
+        return new Span(STAGES.get(stage), items, allocatedBytes(), System.nanoTime());
+    }
+
+    /**
+     * Starts timing a stage that processes one item.
+     */
+    public static Span span(Stage stage) {
+        return span(stage, 1);
+    }
+
+    /**
+     * @return The duration histogram of a stage, in nanoseconds
+     */
+    public static LatencyHistogram latency(Stage stage) {
+        return STAGES.get(stage).latency;
+    }
+
+    /**
+     * Prints {@link #summary} every {@code knn.metrics.period} seconds
+     * (default 10) on a daemon thread. Does nothing when instrumentation is
+     * off or the reporter is already running.
+     */
+    public static synchronized void startReporter(PrintStream out) {
+        long period = Long.getLong("knn.metrics.period", 10);
+        if (!ENABLED || reporter != null || period <= 0) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> out.println(summary()), period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return One line with count, throughput and latency percentiles per
+     *         stage that has run, followed by every hit rate
+     */
+    public static String summary() {
+        StringJoiner line = new StringJoiner(" | ", "metrics ", "");
+        double seconds = uptimeSeconds();
+        for (Stage stage : Stage.values()) {
+            StageMetrics metrics = STAGES.get(stage);
+            LatencyHistogram latency = metrics.latency;
+            if (latency.count() == 0) {
+                continue;
+            }
+            line.add(String.format(Locale.ROOT, "%s n=%d %.1f items/s p50=%.3fms p99=%.3fms max=%.3fms alloc=%dKiB",
+                    stage.name().toLowerCase(Locale.ROOT), latency.count(), metrics.items.sum() / seconds,
+                    latency.percentile(50) / 1e6, latency.percentile(99) / 1e6, latency.max() / 1e6,
+                    metrics.allocated.sum() / 1024));
+        }
+        for (Ratio ratio : RATIOS) {
+            if (ratio.hits.sum() + ratio.misses.sum() > 0) {
+                line.add(String.format(Locale.ROOT, "%s %.1f%%", ratio.name, 100 * ratio.rate()));
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * @return Every stage and hit rate as a JSON object; durations are in
+     *         nanoseconds and allocation in bytes
+     */
+    public static String snapshotJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"enabled\":").append(ENABLED)
+                .append(",\"uptimeSeconds\":").append(String.format(Locale.ROOT, "%.3f", uptimeSeconds()))
+                .append(",\"stages\":{");
+        StringJoiner stages = new StringJoiner(",");
+        for (Stage stage : Stage.values()) {
+            StageMetrics metrics = STAGES.get(stage);
+            LatencyHistogram latency = metrics.latency;
+            stages.add(String.format(Locale.ROOT,
+                    "\"%s\":{\"count\":%d,\"items\":%d,\"totalNanos\":%d,\"meanNanos\":%.1f,\"p50Nanos\":%d,"
+                            + "\"p90Nanos\":%d,\"p99Nanos\":%d,\"maxNanos\":%d,\"allocatedBytes\":%d}",
+                    stage.name().toLowerCase(Locale.ROOT), latency.count(), metrics.items.sum(), latency.total(),
+                    latency.mean(), latency.percentile(50), latency.percentile(90), latency.percentile(99),
+                    latency.max(), metrics.allocated.sum()));
+        }
+        json.append(stages).append("},\"ratios\":{");
+        StringJoiner ratios = new StringJoiner(",");
+        for (Ratio ratio : RATIOS) {
+            ratios.add(String.format(Locale.ROOT, "\"%s\":{\"hits\":%d,\"misses\":%d,\"rate\":%.4f}", ratio.name,
+                    ratio.hits.sum(), ratio.misses.sum(), ratio.rate()));
+        }
+        return json.append(ratios).append("}}").toString();
+    }
+
+    /**
+     * Writes {@link #snapshotJson} to the file named by
+     * {@code knn.metrics.json}, if instrumentation is on and the property is
+     * set.
+     */
+    public static void writeConfiguredSnapshot() throws IOException {
+        String path = System.getProperty("knn.metrics.json");
+        if (ENABLED && path != null) {
+            Files.write(Paths.get(path), snapshotJson().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Writes {@link #snapshotJson} to a file.
+     */
+    public static void writeSnapshot(Path path) throws IOException {
+        Files.write(path, snapshotJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static double uptimeSeconds() {
+        return Math.max(1e-9, (System.nanoTime() - STARTED) / 1e9);
+    }
+
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        if (ENABLED && ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean =
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean;
+            }
+        }
+        return null;
+    }
+
+    private static final class StageMetrics {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder items = new LongAdder();
+        private final LongAdder allocated = new LongAdder();
+    }
+
+    /**
+     * A running measurement of one stage, recorded when it is closed.
+     */
+    public static final class Span implements AutoCloseable {
+
+        private final StageMetrics stage;
+        private final long items;
+        private final long allocatedAtStart;
+        private final long startNanos;
+
+        private Span(StageMetrics stage, long items, long allocatedAtStart, long startNanos) {
+            this.stage = stage;
+            this.items = items;
+            this.allocatedAtStart = allocatedAtStart;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void close() {
+            if (stage == null) {
+                return;
+            }
+            stage.latency.record(System.nanoTime() - startNanos);
+            stage.items.add(items);
+            stage.allocated.add(allocatedBytes() - allocatedAtStart);
+        }
+    }
+
+    /**
+     * Hit and miss counts of a cache or index.
+     */
+    public static final class Ratio {
+
+        private final String name;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        private Ratio(String name) {
+            this.name = name;
+        }
+
+        public void hit() {
+            if (ENABLED) {
+                hits.increment();
+            }
+        }
+
+        public void miss() {
+            if (ENABLED) {
+                misses.increment();
+            }
+        }
+
+        /**
+         * Records several hits and misses at once.
+         */
+        public void add(long hitCount, long missCount) {
+            if (ENABLED) {
+                hits.add(hitCount);
+                misses.add(missCount);
+            }
+        }
+
+        /**
+         * @return Hits as a fraction of all lookups, or 0 before any lookup
+         */
+        public double rate() {
+            long h = hits.sum();
+            long total = h + misses.sum();
+            return total == 0 ? 0 : (double) h / total;
+        }
+    }
+}
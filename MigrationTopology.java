@@ -0,0 +1,42 @@
+import java.util.stream.IntStream;
+
+/**
+ * Which islands receive the migrants of each island in an island-model
+ * genetic algorithm. An island never sends migrants to itself.
+ *
+ * @version 1.0
+ */
+public enum MigrationTopology {
+
+    /** Island i sends to island i + 1, and the last island to the first. */
+    RING {
+        @Override
+        public int[] destinations(int island, int islands) {
+            return islands < 2 ? new int[0] : new int[] { (island + 1) % islands };
+        }
+    },
+
+    /** Every island sends to every other island. */
+    FULLY_CONNECTED {
+        @Override
+        public int[] destinations(int island, int islands) {
+            return IntStream.range(0, islands).filter(i -> i != island).toArray();
+        }
+    },
+
+    /** Island 0 is the hub: it sends to every island and receives from all of them. */
+    STAR {
+        @Override
+        public int[] destinations(int island, int islands) {
+            return island == 0 ? FULLY_CONNECTED.destinations(island, islands)
+                    : new int[] { 0 };
+        }
+    };
+
+    /**
+     * @param island  The sending island, between 0 and {@code islands - 1}
+     * @param islands Number of islands
+     * @return The islands that receive its migrants, ascending
+     */
+    public abstract int[] destinations(int island, int islands);
+}
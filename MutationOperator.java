@@ -0,0 +1,34 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * Makes a small random change to a chromosome to keep the population
+ * diverse.
+ *
+ * @version 1.0
+ */
+public interface MutationOperator {
+
+    /**
+     * @param chromosome Chromosome to mutate
+     * @param random     Source of randomness
+     * @return The mutated chromosome, or the same one if nothing changed
+     */
+    Chromosome apply(Chromosome chromosome, RandomGenerator random);
+
+    /**
+     * Flips each bit independently with the given probability.
+     */
+    static MutationOperator bitFlip(double probability) {
+        if (!(probability >= 0 && probability <= 1)) {
+            throw new IllegalArgumentException("Probability must be in [0, 1] but was " + probability);
+        }
+        return (chromosome, random) -> chromosome.mutate(probability, random);
+    }
+
+    /**
+     * Flips exactly one bit chosen uniformly.
+     */
+    static MutationOperator singleBit() {
+        return (chromosome, random) -> chromosome.flip(random.nextInt(chromosome.length()));
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Bounded max-heap keeping the k best (smallest distance) candidates seen so
+ * far. The root is always the worst retained candidate, so a new candidate is
+ * rejected with a single comparison once the heap is full. Ties on distance
+ * are broken by the lower row index, which makes the result independent of
+ * the order candidates are offered in.
+ *
+ * @version 1.0
+ */
+public final class NeighbourHeap {
+
+    private final int capacity;
+    private final int[] indices;
+    private final double[] distances;
+    private int size;
+
+    /**
+     * @param capacity Number of neighbours to keep, at least 1
+     */
+    public NeighbourHeap(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("k must be at least 1 but was " + capacity);
+        }
+        this.capacity = capacity;
+        this.indices = new int[capacity];
+        this.distances = new double[capacity];
+    }
+
+    /**
+     * Offers a candidate to the heap.
+     *
+     * @param index    Training row index
+     * @param distance Distance from the query to that row
+     * @return True if the candidate was kept
+     */
+    public boolean offer(int index, double distance) {
+        if (size < capacity) {
+            int child = size++;
+            while (child > 0) {
+                int parent = (child - 1) >>> 1;
+                if (!worse(distance, index, distances[parent], indices[parent])) {
+                    break;
+                }
+                indices[child] = indices[parent];
+                distances[child] = distances[parent];
+                child = parent;
+            }
+            indices[child] = index;
+            distances[child] = distance;
+            return true;
+        }
+        if (!worse(distances[0], indices[0], distance, index)) {
+            return false;
+        }
+        siftDown(0, index, distance, size);
+        return true;
+    }
+
+    /**
+     * @return True once k candidates are held
+     */
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Distance of the worst retained candidate, or positive infinity
+     *         while the heap still has room
+     */
+    public double threshold() {
+        return size < capacity ? Double.POSITIVE_INFINITY : distances[0];
+    }
+
+    /**
+     * Empties the heap so it can be reused for another query.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Copies the retained candidates out, closest first. The heap itself is
+     * left unchanged.
+     */
+    public Neighbours toNeighbours() {
+        int[] outIndices = new int[size];
+        double[] outDistances = new double[size];
+        int[] heapIndices = indices.clone();
+        double[] heapDistances = distances.clone();
+        for (int remaining = size; remaining > 0; remaining--) {
+            int last = remaining - 1;
+            outIndices[last] = heapIndices[0];
+            outDistances[last] = heapDistances[0];
+            int movedIndex = heapIndices[last];
+            double movedDistance = heapDistances[last];
+            siftDown(heapIndices, heapDistances, 0, movedIndex, movedDistance, last);
+        }
+        return new Neighbours(outIndices, outDistances);
+    }
+
+    private void siftDown(int slot, int index, double distance, int length) {
+        siftDown(indices, distances, slot, index, distance, length);
+    }
+
+    private static void siftDown(int[] indices, double[] distances, int slot, int index, double distance,
+            int length) {
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= length) {
+                break;
+            }
+            int right = child + 1;
+            if (right < length && worse(distances[right], indices[right], distances[child], indices[child])) {
+                child = right;
+            }
+            if (!worse(distances[child], indices[child], distance, index)) {
+                break;
+            }
+            indices[slot] = indices[child];
+            distances[slot] = distances[child];
+            slot = child;
+        }
+        if (length > 0) {
+            indices[slot] = index;
+            distances[slot] = distance;
+        }
+    }
+
+    /**
+     * @return True if candidate a ranks strictly after candidate b
+     */
+    static boolean worse(double aDistance, int aIndex, double bDistance, int bIndex) {
+        return aDistance > bDistance || (aDistance == bDistance && aIndex > bIndex);
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * A k-nearest-neighbour index over a fixed training set.
+ *
+ * @version 1.0
+ */
+public interface NeighbourSearch {
+
+    /**
+     * Finds the k training rows closest to a query.
+     *
+     * @param query  Array holding the query features
+     * @param offset Index of the query's first feature
+     * @param k      Number of neighbours wanted
+     * @return Up to k neighbours, closest first
+     */
+    Neighbours query(float[] query, int offset, int k);
+
+    /**
+     * Runs {@link #query} for every row of a query set.
+     *
+     * @param queries Query patterns, with the same features as the training set
+     * @param k       Number of neighbours wanted per query
+     * @return One result per query row
+     */
+    default Neighbours[] queryAll(Dataset queries, int k) {
+        Neighbours[] results = new Neighbours[queries.rows()];
+        for (int i = 0; i < queries.rows(); i++) {
+            results[i] = query(queries.values(), queries.offset(i), k);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * The nearest neighbours found for a single query, closest first.
+ * Equal distances are ordered by ascending training row index.
+ *
+ * @version 1.0
+ */
+public final class Neighbours {
+
+    private final int[] indices;
+    private final double[] distances;
+
+    /**
+     * @param indices   Training row indices, closest first
+     * @param distances Distances matching {@code indices}
+     */
+    public Neighbours(int[] indices, double[] distances) {
+        if (indices.length != distances.length) {
+            throw new IllegalArgumentException(
+                    indices.length + " indices but " + distances.length + " distances");
+        }
+        this.indices = indices;
+        this.distances = distances;
+    }
+
+    public int size() {
+        return indices.length;
+    }
+
+    public int index(int rank) {
+        return indices[rank];
+    }
+
+    public double distance(int rank) {
+        return distances[rank];
+    }
+
+    public int[] indices() {
+        return indices;
+    }
+
+    public double[] distances() {
+        return distances;
+    }
+}
@@ -0,0 +1,196 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Euclidean search that scores a whole query batch as a matrix product,
+ * using ||a - b||^2 = ||a||^2 + ||b||^2 - 2 a.b, matching brute force to
+ * within rounding.
+ * <p>
+ * Row norms of the training set are computed once. For each block of queries
+ * and block of training rows the dot products are produced by a cache-blocked
+ * kernel that walks the features in chunks and computes four training rows
+ * per pass, so every query value loaded is reused four times. Products are
+ * accumulated in double to limit cancellation, and a squared distance that
+ * rounding pushes below zero is clamped to zero.
+ * <p>
+ * The identity rounds differently from summing squared differences, so
+ * distances agree with {@link BruteForceSearch} only to within rounding;
+ * {@link #main} reports the largest difference on the project data.
+ *
+ * @version 1.0
+ */
+public class NormExpansionSearch implements NeighbourSearch {
+
+    static final int QUERY_BLOCK = 32;
+    static final int TRAIN_BLOCK = 256;
+    static final int FEATURE_BLOCK = 128;
+
+    private final Dataset train;
+    private final double[] trainNorms;
+
+    /**
+     * @param train Training patterns to search with the Euclidean metric
+     */
+    public NormExpansionSearch(Dataset train) {
+        this.train = train;
+        this.trainNorms = squaredNorms(train);
+    }
+
+    @Override
+    public Neighbours query(float[] query, int offset, int k) {
+        float[] row = new float[train.cols()];
+        System.arraycopy(query, offset, row, 0, row.length);
+        return queryAll(new Dataset(row, 1, row.length), k)[0];
+    }
+
+    @Override
+    public Neighbours[] queryAll(Dataset queries, int k) {
+        int capacity = Math.min(k, train.rows());
+        double[] queryNorms = squaredNorms(queries);
+        double[] dots = new double[QUERY_BLOCK * TRAIN_BLOCK];
+        NeighbourHeap[] heaps = new NeighbourHeap[Math.min(QUERY_BLOCK, queries.rows())];
+        for (int h = 0; h < heaps.length; h++) {
+            heaps[h] = new NeighbourHeap(capacity);
+        }
+        Neighbours[] results = new Neighbours[queries.rows()];
+
+        for (int q0 = 0; q0 < queries.rows(); q0 += QUERY_BLOCK) {
+            int q1 = Math.min(queries.rows(), q0 + QUERY_BLOCK);
+            for (int i = q0; i < q1; i++) {
+                heaps[i - q0].clear();
+            }
+            for (int t0 = 0; t0 < train.rows(); t0 += TRAIN_BLOCK) {
+                int t1 = Math.min(train.rows(), t0 + TRAIN_BLOCK);
+                dotBlock(queries, q0, q1, t0, t1, dots);
+                for (int i = q0; i < q1; i++) {
+                    NeighbourHeap heap = heaps[i - q0];
+                    int row = (i - q0) * TRAIN_BLOCK;
+                    for (int j = t0; j < t1; j++) {
+                        double squared = queryNorms[i] + trainNorms[j] - 2 * dots[row + j - t0];
+                        heap.offer(j, Math.sqrt(Math.max(0, squared)));
+                    }
+                }
+            }
+            for (int i = q0; i < q1; i++) {
+                results[i] = heaps[i - q0].toNeighbours();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Fills dots[(i - q0) * TRAIN_BLOCK + (j - t0)] with the dot product of
+     * query i and training row j for every pair in the block.
+     */
+    private void dotBlock(Dataset queries, int q0, int q1, int t0, int t1, double[] dots) {
+        for (int i = q0; i < q1; i++) {
+            int row = (i - q0) * TRAIN_BLOCK;
+            for (int j = t0; j < t1; j++) {
+                dots[row + j - t0] = 0;
+            }
+        }
+        float[] a = queries.values();
+        float[] b = train.values();
+        int cols = train.cols();
+        for (int f0 = 0; f0 < cols; f0 += FEATURE_BLOCK) {
+            int f1 = Math.min(cols, f0 + FEATURE_BLOCK);
+            for (int i = q0; i < q1; i++) {
+                int qa = queries.offset(i);
+                int row = (i - q0) * TRAIN_BLOCK - t0;
+                int j = t0;
+                for (; j + 3 < t1; j += 4) {
+                    int b0 = train.offset(j);
+                    int b1 = train.offset(j + 1);
+                    int b2 = train.offset(j + 2);
+                    int b3 = train.offset(j + 3);
+                    double s0 = 0;
+                    double s1 = 0;
+                    double s2 = 0;
+                    double s3 = 0;
+                    for (int f = f0; f < f1; f++) {
+                        double x = a[qa + f];
+                        s0 += x * b[b0 + f];
+                        s1 += x * b[b1 + f];
+                        s2 += x * b[b2 + f];
+                        s3 += x * b[b3 + f];
+                    }
+                    dots[row + j] += s0;
+                    dots[row + j + 1] += s1;
+                    dots[row + j + 2] += s2;
+                    dots[row + j + 3] += s3;
+                }
+                for (; j < t1; j++) {
+                    int bj = train.offset(j);
+                    double s = 0;
+                    for (int f = f0; f < f1; f++) {
+                        s += (double) a[qa + f] * b[bj + f];
+                    }
+                    dots[row + j] += s;
+                }
+            }
+        }
+    }
+
+    private static double[] squaredNorms(Dataset data) {
+        double[] norms = new double[data.rows()];
+        float[] values = data.values();
+        for (int r = 0; r < data.rows(); r++) {
+            int base = data.offset(r);
+            double sum = 0;
+            for (int c = 0; c < data.cols(); c++) {
+                double v = values[base + c];
+                sum += v * v;
+            }
+            norms[r] = sum;
+        }
+        return norms;
+    }
+
+    /**
+     * Compares this search with the direct-difference scan on the project
+     * data: largest distance difference, agreement of 1-NN predictions and
+     * time per batch.
+     */
+    public static void main(String[] args) throws IOException {
+        Dataset train = BinaryDataset.readOrParseText(Paths.get("train.knnb"), Paths.get("train_data.txt"),
+                Paths.get("train_label.txt"));
+        Dataset test = BinaryDataset.readOrParseText(Paths.get("test.knnb"), Paths.get("test_data.txt"),
+                Paths.get("test_label.txt"));
+        int k = train.rows();
+        NeighbourSearch direct = new BruteForceSearch(train, Metric.EUCLIDEAN);
+        NeighbourSearch expanded = new NormExpansionSearch(train);
+
+        Neighbours[] all = expanded.queryAll(test, k);
+        double worst = 0;
+        for (int i = 0; i < test.rows(); i++) {
+            for (int rank = 0; rank < all[i].size(); rank++) {
+                double reference = Metric.EUCLIDEAN.distance(test.values(), test.offset(i), train.values(),
+                        train.offset(all[i].index(rank)), train.cols());
+                worst = Math.max(worst, Math.abs(reference - all[i].distance(rank)));
+            }
+        }
+        int[] directPredictions = new KnnClassifier(direct, train.labels(), 1, Voting.MAJORITY).predict(test);
+        int[] expandedPredictions = new KnnClassifier(expanded, train.labels(), 1, Voting.MAJORITY).predict(test);
+        int agree = 0;
+        for (int i = 0; i < directPredictions.length; i++) {
+            if (directPredictions[i] == expandedPredictions[i]) {
+                agree++;
+            }
+        }
+        System.out.printf("max |distance difference| %.3e, 1-NN predictions agree %d/%d%n", worst, agree,
+                directPredictions.length);
+        System.out.printf("direct %.2f ms, norm expansion %.2f ms per batch%n", millis(direct, test),
+                millis(expanded, test));
+    }
+
+    private static double millis(NeighbourSearch search, Dataset queries) {
+        search.queryAll(queries, 1);
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < 10; r++) {
+            long start = System.nanoTime();
+            search.queryAll(queries, 1);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+}
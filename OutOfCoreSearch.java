@@ -0,0 +1,312 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Exact brute-force search over a training set that stays on disk, in the
+ * {@link BinaryDataset} format.
+ * <p>
+ * {@link #queryAll} reads the training features in chunks of
+ * {@code chunkRows} rows on a background thread, up to {@code readAhead}
+ * chunks ahead of the scoring thread, and offers every row of a chunk to
+ * each query's bounded heap as the chunk arrives. Chunk buffers are recycled,
+ * so the memory used is about (readAhead + 1) chunks plus k neighbours per
+ * query, whatever the size of the training file. Labels are read from the
+ * file only for the neighbours that are finally chosen.
+ * <p>
+ * Distances are computed by the same {@link Metric} call and heaps break ties
+ * the same way as {@link BruteForceSearch}, so results are identical to
+ * loading the file and searching it in memory. The payload checksum is
+ * verified as the chunks stream past.
+ *
+ * @version 1.0
+ */
+public class OutOfCoreSearch implements NeighbourSearch {
+
+    /** Default number of training rows per chunk. */
+    public static final int DEFAULT_CHUNK_ROWS = 16_384;
+    /** Default number of chunks read ahead of the scoring thread. */
+    public static final int DEFAULT_READ_AHEAD = 2;
+
+    private final Path path;
+    private final Metric metric;
+    private final int chunkRows;
+    private final int readAhead;
+    private final BinaryDataset.Header header;
+
+    /**
+     * @param path      Binary training set written by {@link BinaryDataset}
+     * @param metric    Distance metric used for ranking
+     * @param chunkRows Training rows read per chunk
+     * @param readAhead Chunks that may be read before they are scored
+     * @throws IOException If the file is not a valid binary dataset
+     */
+    public OutOfCoreSearch(Path path, Metric metric, int chunkRows, int readAhead) throws IOException {
+        if (chunkRows < 1 || readAhead < 1) {
+            throw new IllegalArgumentException(
+                    "Chunk rows and read-ahead must be positive but were " + chunkRows + " and " + readAhead);
+        }
+        this.path = path;
+        this.metric = metric;
+        this.chunkRows = chunkRows;
+        this.readAhead = readAhead;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.header = BinaryDataset.readHeader(channel, path);
+        }
+    }
+
+    /**
+     * Out-of-core search with the default chunk size and read-ahead.
+     */
+    public OutOfCoreSearch(Path path, Metric metric) throws IOException {
+        this(path, metric, DEFAULT_CHUNK_ROWS, DEFAULT_READ_AHEAD);
+    }
+
+    public int rows() {
+        return header.rows;
+    }
+
+    public int cols() {
+        return header.cols;
+    }
+
+    /**
+     * Streams the whole training file once for a single query; prefer
+     * {@link #queryAll} for several.
+     */
+    @Override
+    public Neighbours query(float[] query, int offset, int k) {
+        float[] row = new float[header.cols];
+        System.arraycopy(query, offset, row, 0, row.length);
+        return queryAll(new Dataset(row, 1, row.length), k)[0];
+    }
+
+    /**
+     * @throws UncheckedIOException If the file cannot be read or fails its
+     *                              checksum
+     */
+    @Override
+    public Neighbours[] queryAll(Dataset queries, int k) {
+        if (queries.cols() != header.cols) {
+            throw new IllegalArgumentException(
+                    "Queries have " + queries.cols() + " features but " + path + " has " + header.cols);
+        }
+        NeighbourHeap[] heaps = new NeighbourHeap[queries.rows()];
+        for (int i = 0; i < heaps.length; i++) {
+            heaps[i] = new NeighbourHeap(Math.min(k, header.rows));
+        }
+        BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(readAhead + 1);
+        BlockingQueue<Chunk> full = new ArrayBlockingQueue<>(readAhead + 1);
+        for (int b = 0; b <= readAhead; b++) {
+            free.add(new Chunk(new float[chunkRows * header.cols]));
+        }
+        Reader reader = new Reader(free, full);
+        Thread thread = new Thread(reader, "out-of-core-reader");
+        thread.setDaemon(true);
+        thread.start();
+        try {
+            float[] queryValues = queries.values();
+            int cols = header.cols;
+            Chunk chunk;
+            while ((chunk = full.take()).rows > 0) {
+                for (int i = 0; i < heaps.length; i++) {
+                    int queryBase = queries.offset(i);
+                    NeighbourHeap heap = heaps[i];
+                    for (int j = 0; j < chunk.rows; j++) {
+                        heap.offer(chunk.first + j,
+                                metric.distance(queryValues, queryBase, chunk.values, j * cols, cols));
+                    }
+                }
+                free.put(chunk);
+            }
+            if (chunk.failure instanceof RuntimeException) {
+                throw (RuntimeException) chunk.failure;
+            }
+            if (chunk.failure instanceof Error) {
+                throw (Error) chunk.failure;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while streaming " + path, e);
+        } finally {
+            thread.interrupt();
+        }
+        Neighbours[] results = new Neighbours[heaps.length];
+        for (int i = 0; i < heaps.length; i++) {
+            results[i] = heaps[i].toNeighbours();
+        }
+        return results;
+    }
+
+    /**
+     * Classifies every query, reading only the labels of chosen neighbours.
+     *
+     * @throws IOException If the file has no labels or cannot be read
+     */
+    public int[] predict(Dataset queries, int k, Voting voting) throws IOException {
+        if (!header.hasLabels) {
+            throw new IOException(path + " has no labels");
+        }
+        Neighbours[] neighbours = queryAll(queries, k);
+        int[] predictions = new int[neighbours.length];
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer label = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < neighbours.length; i++) {
+                int size = neighbours[i].size();
+                // Voting only looks labels up by rank, so neighbour r is renumbered r
+                int[] ranks = new int[size];
+                int[] labels = new int[size];
+                for (int r = 0; r < size; r++) {
+                    ranks[r] = r;
+                    label.clear();
+                    long position = header.labelOffset() + (long) neighbours[i].index(r) * Integer.BYTES;
+                    while (label.hasRemaining()) {
+                        if (channel.read(label, position + label.position()) < 0) {
+                            throw new IOException(path + " ended early");
+                        }
+                    }
+                    labels[r] = label.getInt(0);
+                }
+                predictions[i] = voting.vote(new Neighbours(ranks, neighbours[i].distances()), labels);
+            }
+        }
+        return predictions;
+    }
+
+    /**
+     * Compares out-of-core predictions with an in-memory scan of the same
+     * file.
+     *
+     * @param args Binary training file, binary test file, optional chunk rows
+     *             and k
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java OutOfCoreSearch <train.knnb> <test.knnb> [chunkRows] [k]");
+            return;
+        }
+        int chunkRows = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_CHUNK_ROWS;
+        int k = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        OutOfCoreSearch search = new OutOfCoreSearch(Paths.get(args[0]), Metric.EUCLIDEAN, chunkRows,
+                DEFAULT_READ_AHEAD);
+        Dataset test = BinaryDataset.read(Paths.get(args[1]));
+        long start = System.nanoTime();
+        int[] predictions = search.predict(test, k, Voting.MAJORITY);
+        long streamed = System.nanoTime() - start;
+        System.out.printf("Streamed %d rows x %d columns in chunks of %d: %.1f ms%n", search.rows(), search.cols(),
+                chunkRows, streamed / 1e6);
+        if (test.labels() != null) {
+            System.out.println("Accuracy " + kNN1.calculateAccuracy(predictions, test.labels()));
+        }
+    }
+
+    /**
+     * A block of consecutive training rows. A chunk with no rows marks the
+     * end of the file, or a failure if {@link #failure} is set: an
+     * {@link UncheckedIOException} for read and checksum errors, or whatever
+     * else stopped the reader.
+     */
+    private static final class Chunk {
+
+        private final float[] values;
+        private int first;
+        private int rows;
+        private Throwable failure;
+
+        private Chunk(float[] values) {
+            this.values = values;
+        }
+    }
+
+    /**
+     * Fills free chunks from the file in order and hands them to the scoring
+     * thread, then sends the end marker.
+     */
+    private final class Reader implements Runnable {
+
+        private final BlockingQueue<Chunk> free;
+        private final BlockingQueue<Chunk> full;
+
+        private Reader(BlockingQueue<Chunk> free, BlockingQueue<Chunk> full) {
+            this.free = free;
+            this.full = full;
+        }
+
+        @Override
+        public void run() {
+            Chunk chunk = null;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                int cols = header.cols;
+                ByteBuffer buffer = ByteBuffer.allocateDirect(chunkRows * cols * Float.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                CRC32 crc = new CRC32();
+                long position = BinaryDataset.HEADER_BYTES;
+                for (int first = 0; first < header.rows; first += chunkRows) {
+                    int rows = Math.min(chunkRows, header.rows - first);
+                    buffer.clear().limit(rows * cols * Float.BYTES);
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer, position + buffer.position()) < 0) {
+                            throw new IOException(path + " ended early");
+                        }
+                    }
+                    position += buffer.limit();
+                    buffer.flip();
+                    crc.update(buffer.duplicate());
+                    chunk = free.take();
+                    buffer.asFloatBuffer().get(chunk.values, 0, rows * cols);
+                    chunk.first = first;
+                    chunk.rows = rows;
+                    full.put(chunk);
+                    chunk = null;
+                }
+                if (header.hasLabels) {
+                    // The labels are part of the checksummed payload
+                    long end = position + (long) header.rows * Integer.BYTES;
+                    while (position < end) {
+                        buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                        while (buffer.hasRemaining()) {
+                            if (channel.read(buffer, position + buffer.position()) < 0) {
+                                throw new IOException(path + " ended early");
+                            }
+                        }
+                        position += buffer.limit();
+                        buffer.flip();
+                        crc.update(buffer);
+                    }
+                }
+                if (crc.getValue() != header.crc) {
+                    throw new IOException(path + " failed its checksum");
+                }
+                chunk = free.take();
+                chunk.rows = 0;
+                full.put(chunk);
+            } catch (IOException e) {
+                fail(chunk, new UncheckedIOException(e));
+            } catch (InterruptedException e) {
+                // The scoring thread has finished or given up
+            } catch (Throwable e) {
+                // Anything else, such as running out of direct memory, must still wake the scoring thread
+                fail(chunk, e);
+            }
+        }
+
+        private void fail(Chunk chunk, Throwable failure) {
+            try {
+                Chunk marker = chunk != null ? chunk : free.take();
+                marker.rows = 0;
+                marker.failure = failure;
+                full.put(marker);
+            } catch (InterruptedException e) {
+                // The scoring thread has finished or given up
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Exact brute-force search that scores a whole query set on a ForkJoinPool.
+ * The test x train product is cut into tiles: a tile pairs a block of query
+ * rows with a block of training rows small enough to stay in cache while
+ * every query in the block is compared against it. Each tile finds its own
+ * top-k per query and merges it into the running top-k of its query block
+ * under that block's lock, so memory stays at one top-k per query however
+ * many training blocks there are.
+ * <p>
+ * Every distance is computed by the same {@link Metric} call as the
+ * sequential scan, and {@link NeighbourHeap} orders candidates by distance
+ * then row index, so the merged result is bit-identical to
+ * {@link BruteForceSearch} regardless of thread count or tile size.
+ *
+ * @version 1.0
+ */
+public class ParallelBruteForceSearch extends BruteForceSearch {
+
+    /** Default amount of training data per tile, sized for a typical L2 cache. */
+    public static final int DEFAULT_TILE_BYTES = 128 * 1024;
+    /** Default number of query rows per tile. */
+    public static final int DEFAULT_QUERY_BLOCK = 32;
+
+    private final ForkJoinPool pool;
+    private final int trainBlock;
+    private final int queryBlock;
+
+    /**
+     * @param train      Training patterns to search
+     * @param metric     Distance metric used for ranking
+     * @param features   Column indices to compare, or null for every column
+     * @param pool       Pool the tiles run on; its parallelism sets the thread
+     *                   count
+     * @param tileBytes  Bytes of training features per tile
+     * @param queryBlock Query rows per tile
+     */
+    public ParallelBruteForceSearch(Dataset train, Metric metric, int[] features, ForkJoinPool pool,
+            int tileBytes, int queryBlock) {
+        super(train, metric, features);
+        if (tileBytes < 1 || queryBlock < 1) {
+            throw new IllegalArgumentException(
+                    "Tile size must be positive but was " + tileBytes + " bytes x " + queryBlock + " rows");
+        }
+        this.pool = pool;
+        this.trainBlock = Math.max(1, tileBytes / (Float.BYTES * Math.max(1, train.stride())));
+        this.queryBlock = queryBlock;
+    }
+
+    /**
+     * Parallel search with the default tile sizes.
+     */
+    public ParallelBruteForceSearch(Dataset train, Metric metric, ForkJoinPool pool) {
+        this(train, metric, null, pool, DEFAULT_TILE_BYTES, DEFAULT_QUERY_BLOCK);
+    }
+
+    @Override
+    public Neighbours[] queryAll(Dataset queries, int k) {
+        int rows = queries.rows();
+        if (rows == 0) {
+            return new Neighbours[0];
+        }
+        int trainBlocks = Math.max(1, (train.rows() + trainBlock - 1) / trainBlock);
+        int queryBlocks = (rows + queryBlock - 1) / queryBlock;
+        int capacity = Math.min(k, train.rows());
+        NeighbourHeap[] heaps = new NeighbourHeap[rows];
+        for (int i = 0; i < rows; i++) {
+            heaps[i] = new NeighbourHeap(capacity);
+        }
+        pool.invoke(new TileTask(queries, capacity, heaps, 0, queryBlocks * trainBlocks, trainBlocks));
+
+        Neighbours[] results = new Neighbours[rows];
+        for (int i = 0; i < rows; i++) {
+            results[i] = heaps[i].toNeighbours();
+        }
+        return results;
+    }
+
+    /**
+     * Recursively splits a range of tile numbers until a single tile remains.
+     * Tile t covers query block t / trainBlocks and training block
+     * t % trainBlocks.
+     */
+    private final class TileTask extends RecursiveAction {
+
+        private final Dataset queries;
+        private final int k;
+        private final NeighbourHeap[] heaps;
+        private final int from;
+        private final int to;
+        private final int trainBlocks;
+
+        TileTask(Dataset queries, int k, NeighbourHeap[] heaps, int from, int to, int trainBlocks) {
+            this.queries = queries;
+            this.k = k;
+            this.heaps = heaps;
+            this.from = from;
+            this.to = to;
+            this.trainBlocks = trainBlocks;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new TileTask(queries, k, heaps, from, mid, trainBlocks),
+                        new TileTask(queries, k, heaps, mid, to, trainBlocks));
+                return;
+            }
+            int queryStart = (from / trainBlocks) * queryBlock;
+            int queryEnd = Math.min(queries.rows(), queryStart + queryBlock);
+            int trainStart = (from % trainBlocks) * trainBlock;
+            int trainEnd = Math.min(train.rows(), trainStart + trainBlock);
+            Neighbours[] tile = new Neighbours[queryEnd - queryStart];
+            NeighbourHeap heap = new NeighbourHeap(k);
+            for (int i = queryStart; i < queryEnd; i++) {
+                heap.clear();
+                scan(queries.values(), queries.offset(i), trainStart, trainEnd, heap);
+                tile[i - queryStart] = heap.toNeighbours();
+            }
+            // The first heap of a query block guards the whole block
+            synchronized (heaps[queryStart]) {
+                for (int i = queryStart; i < queryEnd; i++) {
+                    Neighbours candidates = tile[i - queryStart];
+                    for (int rank = 0; rank < candidates.size(); rank++) {
+                        if (!heaps[i].offer(candidates.index(rank), candidates.distance(rank))) {
+                            // Candidates are sorted, so the rest of this tile cannot win either
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Independent, reproducible random number streams derived from a single run
+ * seed.
+ * <p>
+ * Stream {@code n} is the {@link SeededRandom} that the {@code n + 1}-th
+ * call to {@link java.util.SplittableRandom#split} on
+ * {@code new SplittableRandom(seed)} would return: a 64-bit position and an
+ * odd gamma, each hashed from a different point of the seed's own SplitMix64
+ * sequence. A stream depends only on the seed and its number, not on which
+ * thread asks for it, in what order, or how many other streams exist, so
+ * work that gives each island, worker or task its own stream number draws
+ * the same numbers whatever the thread count. Unlike
+ * {@link java.util.SplittableRandom}, each stream's full state can be saved
+ * with {@link SeededRandom#state} and {@link SeededRandom#gamma} for
+ * checkpoints.
+ * <p>
+ * Streams can be nested with {@link #substreams}, for example one family
+ * per island with one stream per purpose inside it. A number should be used
+ * either for a stream or for a family, not both.
+ *
+ * @version 1.0
+ */
+public final class RandomStreams {
+
+    private final long seed;
+
+    /**
+     * @param seed The run seed
+     */
+    public RandomStreams(long seed) {
+        this.seed = seed;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * @return A new generator at the start of stream {@code n}; every call
+     *         with the same number returns the same sequence
+     */
+    public SeededRandom stream(long n) {
+        return SeededRandom.fromState(SeededRandom.mix64(position(2 * n + 1)),
+                SeededRandom.mixGamma(position(2 * n + 2)));
+    }
+
+    /**
+     * @return The family of streams nested under number {@code n}, seeded
+     *         with the first output of stream {@code n}
+     */
+    public RandomStreams substreams(long n) {
+        return new RandomStreams(stream(n).nextLong());
+    }
+
+    /**
+     * Position {@code i} of the SplitMix64 sequence starting at the seed.
+     */
+    private long position(long i) {
+        return seed + i * SeededRandom.GOLDEN_GAMMA;
+    }
+}
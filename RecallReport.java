@@ -0,0 +1,96 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Measures how closely an approximate search matches the exact one, and
+ * sweeps the probe count of {@link IvfSearch} on the project's test set to
+ * show the recall/latency trade-off.
+ *
+ * @version 1.0
+ */
+public final class RecallReport {
+
+    private RecallReport() {
+    }
+
+    /**
+     * Recall at k: the fraction of the exact k nearest neighbours that the
+     * approximate search also returns, averaged over all queries.
+     *
+     * @param exact       Reference search
+     * @param approximate Search under test
+     * @param queries     Query patterns
+     * @param k           Number of neighbours compared per query
+     * @return Recall between 0 and 1
+     */
+    public static double recall(NeighbourSearch exact, NeighbourSearch approximate, Dataset queries, int k) {
+        Neighbours[] expected = exact.queryAll(queries, k);
+        Neighbours[] actual = approximate.queryAll(queries, k);
+        long found = 0;
+        long wanted = 0;
+        for (int i = 0; i < expected.length; i++) {
+            for (int rank = 0; rank < expected[i].size(); rank++) {
+                int row = expected[i].index(rank);
+                for (int other = 0; other < actual[i].size(); other++) {
+                    if (actual[i].index(other) == row) {
+                        found++;
+                        break;
+                    }
+                }
+            }
+            wanted += expected[i].size();
+        }
+        return wanted == 0 ? 1 : (double) found / wanted;
+    }
+
+    /**
+     * Prints recall, accuracy and query time for every probe count.
+     *
+     * @param args Optional k (default 5) and number of lists (default about
+     *             the square root of the training rows)
+     */
+    public static void main(String[] args) throws IOException {
+        int k = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        Dataset train = BinaryDataset.readOrParseText(Paths.get("train.knnb"), Paths.get("train_data.txt"),
+                Paths.get("train_label.txt"));
+        Dataset test = BinaryDataset.readOrParseText(Paths.get("test.knnb"), Paths.get("test_data.txt"),
+                Paths.get("test_label.txt"));
+        int lists = args.length > 1 ? Integer.parseInt(args[1])
+                : Math.max(1, (int) Math.round(Math.sqrt(train.rows())));
+
+        BruteForceSearch exact = new BruteForceSearch(train, Metric.EUCLIDEAN);
+        IvfSearch index = IvfSearch.build(train, Metric.EUCLIDEAN, lists, 1, IvfSearch.DEFAULT_ITERATIONS, 42);
+        System.out.printf("%6s %8s %9s %10s%n", "probes", "recall", "accuracy", "query ms");
+        System.out.printf("%6s %8.4f %9.2f %10.3f%n", "exact", 1.0, accuracy(exact, train, test, k),
+                queryMillis(exact, test, k));
+        // 1, 2, 3, 4, 8, 16, ... and finally every list, which is exact
+        for (int probes = 1; probes <= lists; probes = probes == lists ? lists + 1
+                : Math.min(lists, probes < 4 ? probes + 1 : probes * 2)) {
+            IvfSearch search = index.withProbes(probes);
+            System.out.printf("%6d %8.4f %9.2f %10.3f%n", probes, recall(exact, search, test, k),
+                    accuracy(search, train, test, k), queryMillis(search, test, k));
+        }
+    }
+
+    private static double accuracy(NeighbourSearch search, Dataset train, Dataset test, int k) {
+        int[] predictions = new KnnClassifier(search, train.labels(), k, Voting.MAJORITY).predict(test);
+        int correct = 0;
+        for (int i = 0; i < predictions.length; i++) {
+            if (predictions[i] == test.label(i)) {
+                correct++;
+            }
+        }
+        return (double) correct / predictions.length * 100;
+    }
+
+    private static double queryMillis(NeighbourSearch search, Dataset queries, int k) {
+        search.queryAll(queries, k);
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < 5; r++) {
+            long start = System.nanoTime();
+            search.queryAll(queries, k);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+}
@@ -0,0 +1,20 @@
+/**
+ * Plain loop kernels with primitive float reads, single-precision
+ * differences and double accumulation. These produce exactly the same sums
+ * as {@link Metric#accumulate} and serve as the fallback when the Vector API
+ * is unavailable.
+ *
+ * @version 1.0
+ */
+public final class ScalarDistanceKernel implements DistanceKernel {
+
+    @Override
+    public double squaredEuclidean(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        return Metric.EUCLIDEAN.accumulate(a, aOffset, b, bOffset, length);
+    }
+
+    @Override
+    public double manhattan(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        return Metric.MANHATTAN.accumulate(a, aOffset, b, bOffset, length);
+    }
+}
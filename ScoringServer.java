@@ -0,0 +1,361 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resident HTTP scoring service that loads the training set once and
+ * classifies feature vectors posted to it.
+ * <p>
+ * {@code POST /predict} takes one vector per line, features separated by
+ * spaces as in the data files, and answers with one predicted label per
+ * line. Requests are put on a bounded queue. A single batching thread takes
+ * the oldest request, keeps collecting requests until the batch holds
+ * {@code maxBatchRows} vectors or {@code maxWaitMillis} has passed since the
+ * first one, and classifies the whole batch with one
+ * {@link NeighbourSearch#queryAll} call. With the default
+ * {@link ParallelBruteForceSearch} that is one tiled pass over the training
+ * data shared by every request in the batch.
+ * <p>
+ * When the queue is full the request is refused at once with
+ * {@code 503 Service Unavailable} and a {@code Retry-After} header, so a
+ * burst cannot grow memory or latency without bound. Handlers do not wait
+ * for their batch: the response is written once it is scored, so the queue
+ * depth, not the handler pool, limits the requests in flight. Malformed
+ * input gets {@code 400 Bad Request} and bodies over
+ * {@link #MAX_BODY_BYTES} get {@code 413 Payload Too Large}. {@code GET /metrics} returns the
+ * {@link Metrics} snapshot as JSON.
+ *
+ * @version 1.0
+ */
+public class ScoringServer {
+
+    /** Default number of requests that may wait for a batch. */
+    public static final int DEFAULT_QUEUE_DEPTH = 256;
+    /** Default upper limit on vectors per batch. */
+    public static final int DEFAULT_MAX_BATCH_ROWS = 512;
+    /** Default longest time the first request of a batch waits for others. */
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 5;
+
+    /** Largest request body accepted, in bytes; larger requests get 413. */
+    public static final int MAX_BODY_BYTES = 8 << 20;
+
+    private static final int HANDLER_THREADS = 16;
+
+    private final KnnClassifier classifier;
+    private final int cols;
+    private final BlockingQueue<Request> queue;
+    private final int maxBatchRows;
+    private final long maxWaitNanos;
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final Thread batcher;
+    // Guards running against queue.offer, so no request is queued after stop has drained the queue
+    private final Object admission = new Object();
+    private volatile boolean running;
+
+    /**
+     * @param classifier    Classifier scoring each batch
+     * @param cols          Number of features expected per vector
+     * @param port          Local port to listen on, or 0 for any free port
+     * @param queueDepth    Requests that may wait before new ones are refused
+     * @param maxBatchRows  Vectors after which a batch stops collecting; a
+     *                      batch may exceed it by the rows of its last request
+     * @param maxWaitMillis Longest time a batch waits for more requests
+     */
+    public ScoringServer(KnnClassifier classifier, int cols, int port, int queueDepth, int maxBatchRows,
+            long maxWaitMillis) throws IOException {
+        if (queueDepth < 1 || maxBatchRows < 1 || maxWaitMillis < 0) {
+            throw new IllegalArgumentException("Queue depth and batch size must be positive and the wait "
+                    + "non-negative but were " + queueDepth + ", " + maxBatchRows + " and " + maxWaitMillis);
+        }
+        this.classifier = classifier;
+        this.cols = cols;
+        this.queue = new ArrayBlockingQueue<>(queueDepth);
+        this.maxBatchRows = maxBatchRows;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.handlers = Executors.newFixedThreadPool(HANDLER_THREADS);
+        this.batcher = new Thread(this::runBatches, "scoring-batcher");
+        server.createContext("/predict", this::handle);
+        server.createContext("/metrics", this::handleMetrics);
+        server.setExecutor(handlers);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        running = true;
+        batcher.start();
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and fails any that are still queued. A
+     * request arriving during shutdown is refused with 503 rather than
+     * queued behind the final drain.
+     */
+    public void stop() {
+        synchronized (admission) {
+            running = false;
+        }
+        server.stop(0);
+        batcher.interrupt();
+        try {
+            batcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Request pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(new IllegalStateException("Server stopped"));
+        }
+        handlers.shutdown();
+    }
+
+    /**
+     * @return The port the server listens on
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Starts a server over the project's training set.
+     *
+     * @param args Optional port (default 8080), queue depth, maximum batch
+     *             rows, maximum wait in milliseconds, k, voting rule and
+     *             number of scoring threads (default: all processors)
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int queueDepth = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_QUEUE_DEPTH;
+        int maxBatchRows = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_BATCH_ROWS;
+        long maxWaitMillis = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_MAX_WAIT_MILLIS;
+        int k = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+        Voting voting = args.length > 5 ? Voting.valueOf(args[5]) : Voting.MAJORITY;
+        int threads = args.length > 6 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+
+        Dataset train = BinaryDataset.readOrParseText(Paths.get("train.knnb"), Paths.get("train_data.txt"),
+                Paths.get("train_label.txt"));
+        NeighbourSearch search = new ParallelBruteForceSearch(train, Metric.EUCLIDEAN, new ForkJoinPool(threads));
+        KnnClassifier classifier = new KnnClassifier(search, train.labels(), k, voting);
+        ScoringServer server = new ScoringServer(classifier, train.cols(), port, queueDepth, maxBatchRows,
+                maxWaitMillis);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        Metrics.startReporter(System.out);
+        server.start();
+        System.out.println("Scoring " + train.cols() + "-feature vectors against " + train.rows()
+                + " training rows on http://localhost:" + server.port() + "/predict");
+    }
+
+    /**
+     * Parses and queues a request, then returns without waiting: the
+     * response is sent on a handler thread once the batcher has scored it,
+     * so handler threads are never tied up and the queue depth alone bounds
+     * the requests in flight.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        boolean queued = false;
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, "Use POST\n");
+                return;
+            }
+            byte[] bytes;
+            try (InputStream body = exchange.getRequestBody()) {
+                bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+            }
+            if (bytes.length > MAX_BODY_BYTES) {
+                respond(exchange, 413, "Request body exceeds " + MAX_BODY_BYTES + " bytes\n");
+                return;
+            }
+            Request request;
+            try {
+                request = parse(new String(bytes, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, e.getMessage() + "\n");
+                return;
+            }
+            if (request.rows == 0) {
+                respond(exchange, 200, "");
+                return;
+            }
+            synchronized (admission) {
+                if (running && queue.offer(request)) {
+                    queued = true;
+                    request.result.whenCompleteAsync((labels, failure) -> complete(exchange, labels, failure),
+                            handlers);
+                    return;
+                }
+            }
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, 503, running ? "Scoring queue is full\n" : "Server is stopping\n");
+        } finally {
+            if (!queued) {
+                exchange.close();
+            }
+        }
+    }
+
+    private static void complete(HttpExchange exchange, int[] labels, Throwable failure) {
+        try (exchange) {
+            if (failure != null) {
+                respond(exchange, failure instanceof IllegalStateException ? 503 : 500, failure + "\n");
+                return;
+            }
+            StringJoiner joiner = new StringJoiner("\n", "", "\n");
+            for (int label : labels) {
+                joiner.add(Integer.toString(label));
+            }
+            respond(exchange, 200, joiner.toString());
+        } catch (IOException e) {
+            // The client has gone; nothing left to tell it
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            byte[] bytes = Metrics.snapshotJson().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Parses one vector per non-blank line.
+     *
+     * @throws IllegalArgumentException If a line has the wrong number of
+     *                                  features or a feature is not a number
+     */
+    private Request parse(String body) {
+        String[] lines = body.split("\n");
+        List<String[]> vectors = new ArrayList<>();
+        for (String line : lines) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            String[] tokens = trimmed.split("\\s+");
+            if (tokens.length != cols) {
+                throw new IllegalArgumentException(
+                        "Vector " + (vectors.size() + 1) + " has " + tokens.length + " features, expected " + cols);
+            }
+            vectors.add(tokens);
+        }
+        float[] values = new float[vectors.size() * cols];
+        for (int r = 0; r < vectors.size(); r++) {
+            String[] tokens = vectors.get(r);
+            for (int c = 0; c < cols; c++) {
+                try {
+                    values[r * cols + c] = Float.parseFloat(tokens[c]);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Vector " + (r + 1) + " has a malformed feature " + tokens[c]);
+                }
+            }
+        }
+        return new Request(values, vectors.size());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Batching loop: waits for a first request, gathers more until the batch
+     * is full or its wait time is up, then scores the batch.
+     */
+    private void runBatches() {
+        List<Request> batch = new ArrayList<>();
+        while (running) {
+            try {
+                Request first = queue.take();
+                batch.add(first);
+                int rows = first.rows;
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (rows < maxBatchRows) {
+                    Request next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    rows += next.rows;
+                }
+                score(batch, rows);
+            } catch (InterruptedException e) {
+                for (Request request : batch) {
+                    request.result.completeExceptionally(new IllegalStateException("Server stopped"));
+                }
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void score(List<Request> batch, int rows) {
+        try {
+            float[] values = new float[rows * cols];
+            int position = 0;
+            for (Request request : batch) {
+                System.arraycopy(request.values, 0, values, position, request.values.length);
+                position += request.values.length;
+            }
+            int[] predictions = classifier.predict(new Dataset(values, rows, cols));
+            int first = 0;
+            for (Request request : batch) {
+                int[] labels = new int[request.rows];
+                System.arraycopy(predictions, first, labels, 0, request.rows);
+                first += request.rows;
+                request.result.complete(labels);
+            }
+        } catch (RuntimeException e) {
+            for (Request request : batch) {
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * The vectors of one HTTP request and the labels that answer it.
+     */
+    private static final class Request {
+
+        private final float[] values;
+        private final int rows;
+        private final CompletableFuture<int[]> result = new CompletableFuture<>();
+
+        private Request(float[] values, int rows) {
+            this.values = values;
+            this.rows = rows;
+        }
+    }
+}
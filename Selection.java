@@ -0,0 +1,91 @@
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Chooses parents for the next generation from a scored population.
+ * Higher fitness is better.
+ *
+ * @version 1.0
+ */
+public interface Selection {
+
+    /**
+     * @param fitness Fitness of every member of the population
+     * @param count   Number of parents to choose
+     * @param random  Source of randomness
+     * @return Indices of the chosen parents; a member may be chosen repeatedly
+     */
+    int[] select(double[] fitness, int count, RandomGenerator random);
+
+    /**
+     * Each parent is the fittest of {@code size} members drawn uniformly with
+     * replacement; ties go to the lower index. Larger tournaments select more
+     * strongly.
+     */
+    static Selection tournament(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Tournament size must be at least 1 but was " + size);
+        }
+        return (fitness, count, random) -> {
+            int[] parents = new int[count];
+            for (int p = 0; p < count; p++) {
+                int best = random.nextInt(fitness.length);
+                for (int round = 1; round < size; round++) {
+                    int challenger = random.nextInt(fitness.length);
+                    if (fitness[challenger] > fitness[best]
+                            || (fitness[challenger] == fitness[best] && challenger < best)) {
+                        best = challenger;
+                    }
+                }
+                parents[p] = best;
+            }
+            return parents;
+        };
+    }
+
+    /**
+     * Fitness-proportionate selection. Negative fitness counts as zero, and
+     * if every weight is zero members are drawn uniformly.
+     */
+    static Selection roulette() {
+        return (fitness, count, random) -> {
+            double[] cumulative = new double[fitness.length];
+            double total = 0;
+            for (int i = 0; i < fitness.length; i++) {
+                total += Math.max(0, fitness[i]);
+                cumulative[i] = total;
+            }
+            int[] parents = new int[count];
+            for (int p = 0; p < count; p++) {
+                if (total <= 0) {
+                    parents[p] = random.nextInt(fitness.length);
+                    continue;
+                }
+                int slot = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+                // A miss returns -(insertion point) - 1; the insertion point is the slot hit
+                slot = slot < 0 ? -slot - 1 : slot + 1;
+                parents[p] = Math.min(slot, fitness.length - 1);
+            }
+            return parents;
+        };
+    }
+
+    /**
+     * Parents are drawn uniformly from the fittest {@code fraction} of the
+     * population, at least one member.
+     */
+    static Selection truncation(double fraction) {
+        if (!(fraction > 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("Fraction must be in (0, 1] but was " + fraction);
+        }
+        return (fitness, count, random) -> {
+            int[] ranked = EvolutionEngine.rank(fitness);
+            int pool = Math.max(1, (int) (fraction * fitness.length));
+            int[] parents = new int[count];
+            for (int p = 0; p < count; p++) {
+                parents[p] = ranked[random.nextInt(pool)];
+            }
+            return parents;
+        };
+    }
+}
@@ -0,0 +1,402 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Loads the whitespace-separated text format of train_data.txt and
+ * train_label.txt straight from a memory-mapped file.
+ * <p>
+ * Numbers are parsed from the mapped bytes by hand, so no String is created
+ * per token or per line. Each file is read twice: the first pass counts rows
+ * and columns so the second can fill exactly-sized primitive arrays without
+ * growing and copying them. Files larger than one mapping are processed in
+ * windows that always end on a line break.
+ * <p>
+ * Floats are correctly rounded, matching {@link Float#parseFloat}. The rare
+ * token that the fast path cannot round exactly (very long mantissas, large
+ * exponents, or NaN and Infinity) falls back to the JDK parser.
+ *
+ * @version 1.0
+ */
+public final class TextDatasetLoader {
+
+    /** Largest region mapped at once. Lines must be shorter than this. */
+    static final int WINDOW_BYTES = 1 << 30;
+
+    private static final double[] DOUBLE_POW10 = new double[23];
+    private static final float[] FLOAT_POW10 = new float[11];
+
+    static {
+        double power = 1;
+        for (int i = 0; i < DOUBLE_POW10.length; i++) {
+            DOUBLE_POW10[i] = power;
+            power *= 10;
+        }
+        for (int i = 0; i < FLOAT_POW10.length; i++) {
+            FLOAT_POW10[i] = (float) DOUBLE_POW10[i];
+        }
+    }
+
+    private TextDatasetLoader() {
+    }
+
+    /**
+     * Loads one pattern per non-blank line, features separated by spaces or
+     * tabs.
+     *
+     * @param path The data file
+     * @return An unlabelled dataset
+     * @throws IOException              If the file cannot be read
+     * @throws IllegalArgumentException If the rows are ragged or a token is
+     *                                  not a number
+     */
+    public static Dataset loadFeatures(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            int[] shape = new int[2];
+            forEachWindow(channel, buffer -> countShape(buffer, shape));
+            int rows = shape[0];
+            int cols = shape[1];
+            float[] values = new float[Math.multiplyExact(rows, cols)];
+            int[] position = new int[2];
+            forEachWindow(channel, buffer -> parseFeatures(buffer, values, cols, position, path));
+            return new Dataset(values, rows, cols);
+        }
+    }
+
+    /**
+     * Loads whitespace-separated integer labels.
+     *
+     * @param path The label file
+     * @return One label per token, in file order
+     * @throws IOException              If the file cannot be read
+     * @throws IllegalArgumentException If a token is not an integer
+     */
+    public static int[] loadLabels(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            int[] count = new int[1];
+            forEachWindow(channel, buffer -> count[0] += countTokens(buffer));
+            int[] labels = new int[count[0]];
+            int[] next = new int[1];
+            forEachWindow(channel, buffer -> parseLabels(buffer, labels, next, path));
+            return labels;
+        }
+    }
+
+    /**
+     * Prints the shape of a data file and how long it took to load.
+     *
+     * @param args Path of the data file
+     */
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        Dataset data = loadFeatures(Paths.get(args[0]));
+        long elapsed = System.nanoTime() - start;
+        System.out.println(args[0] + ": " + data.rows() + " rows x " + data.cols() + " columns in "
+                + elapsed / 1_000_000 + " ms");
+    }
+
+    private interface WindowConsumer {
+        void accept(MappedByteBuffer buffer);
+    }
+
+    /**
+     * Maps the file a window at a time. Every window except the last ends just
+     * after a line break, so no token or line straddles two windows.
+     */
+    private static void forEachWindow(FileChannel channel, WindowConsumer consumer) throws IOException {
+        long size = channel.size();
+        long start = 0;
+        while (start < size) {
+            long length = Math.min(WINDOW_BYTES, size - start);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            int limit = (int) length;
+            if (start + length < size) {
+                while (limit > 0 && buffer.get(limit - 1) != '\n') {
+                    limit--;
+                }
+                if (limit == 0) {
+                    throw new IOException("Line at byte " + start + " is longer than " + WINDOW_BYTES + " bytes");
+                }
+                buffer.limit(limit);
+            }
+            consumer.accept(buffer);
+            start += limit;
+        }
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    /**
+     * Counts non-blank lines into shape[0] and records the token count of the
+     * first one in shape[1].
+     */
+    private static void countShape(MappedByteBuffer buffer, int[] shape) {
+        int limit = buffer.limit();
+        int tokens = 0;
+        boolean inToken = false;
+        for (int i = 0; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n') {
+                if (tokens > 0) {
+                    endCountedLine(shape, tokens);
+                }
+                tokens = 0;
+                inToken = false;
+            } else if (isSeparator(b)) {
+                inToken = false;
+            } else if (!inToken) {
+                inToken = true;
+                tokens++;
+            }
+        }
+        if (tokens > 0) {
+            endCountedLine(shape, tokens);
+        }
+    }
+
+    private static void endCountedLine(int[] shape, int tokens) {
+        if (shape[0]++ == 0) {
+            shape[1] = tokens;
+        }
+    }
+
+    private static int countTokens(MappedByteBuffer buffer) {
+        int limit = buffer.limit();
+        int tokens = 0;
+        boolean inToken = false;
+        for (int i = 0; i < limit; i++) {
+            if (isSeparator(buffer.get(i))) {
+                inToken = false;
+            } else if (!inToken) {
+                inToken = true;
+                tokens++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Parses a window of feature lines.
+     *
+     * @param position [0] index of the next value to write, [1] number of the
+     *                 current line for error messages
+     */
+    private static void parseFeatures(MappedByteBuffer buffer, float[] values, int cols, int[] position,
+            Path path) {
+        int limit = buffer.limit();
+        int out = position[0];
+        int line = position[1];
+        int col = 0;
+        int i = 0;
+        while (i < limit) {
+            byte b = buffer.get(i);
+            if (b == '\n') {
+                line++;
+                checkRowLength(col, cols, line, path);
+                col = 0;
+                i++;
+            } else if (isSeparator(b)) {
+                i++;
+            } else {
+                int end = tokenEnd(buffer, i, limit);
+                if (col == cols) {
+                    throw new IllegalArgumentException(
+                            path + " line " + (line + 1) + " has more than " + cols + " values");
+                }
+                values[out++] = parseFloat(buffer, i, end);
+                col++;
+                i = end;
+            }
+        }
+        if (col > 0) {
+            // Last line of the file without a trailing line break
+            line++;
+            checkRowLength(col, cols, line, path);
+        }
+        position[0] = out;
+        position[1] = line;
+    }
+
+    private static void checkRowLength(int col, int cols, int line, Path path) {
+        if (col != 0 && col != cols) {
+            throw new IllegalArgumentException(
+                    path + " line " + line + " has " + col + " values, expected " + cols);
+        }
+    }
+
+    private static void parseLabels(MappedByteBuffer buffer, int[] labels, int[] next, Path path) {
+        int limit = buffer.limit();
+        int out = next[0];
+        int i = 0;
+        while (i < limit) {
+            if (isSeparator(buffer.get(i))) {
+                i++;
+                continue;
+            }
+            int end = tokenEnd(buffer, i, limit);
+            labels[out++] = parseInt(buffer, i, end, path);
+            i = end;
+        }
+        next[0] = out;
+    }
+
+    private static int tokenEnd(MappedByteBuffer buffer, int start, int limit) {
+        int end = start;
+        while (end < limit && !isSeparator(buffer.get(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    static int parseInt(MappedByteBuffer buffer, int start, int end, Path path) {
+        int i = start;
+        boolean negative = false;
+        byte first = buffer.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        if (i == end) {
+            throw notANumber(buffer, start, end, path);
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw notANumber(buffer, start, end, path);
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw notANumber(buffer, start, end, path);
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw notANumber(buffer, start, end, path);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses a decimal float such as "-0.012595" or "1.5e-3" from bytes.
+     * Digits are gathered into a long mantissa and a power of ten; the value
+     * is then formed with a single correctly rounded float or double
+     * operation whenever both operands are exact.
+     */
+    static float parseFloat(MappedByteBuffer buffer, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        byte first = buffer.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean sawDigit = false;
+        boolean sawPoint = false;
+        for (; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b >= '0' && b <= '9') {
+                sawDigit = true;
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                    if (sawPoint) {
+                        exponent--;
+                    }
+                } else if (b != '0') {
+                    // Digits beyond what a long holds exactly would be lost
+                    return slowParse(buffer, start, end);
+                } else if (!sawPoint) {
+                    exponent++;
+                }
+            } else if (b == '.' && !sawPoint) {
+                sawPoint = true;
+            } else {
+                break;
+            }
+        }
+        if (!sawDigit) {
+            return slowParse(buffer, start, end);
+        }
+        if (i < end) {
+            byte b = buffer.get(i);
+            if (b != 'e' && b != 'E' || ++i == end) {
+                return slowParse(buffer, start, end);
+            }
+            boolean negativeExponent = false;
+            b = buffer.get(i);
+            if (b == '-' || b == '+') {
+                negativeExponent = b == '-';
+                if (++i == end) {
+                    return slowParse(buffer, start, end);
+                }
+            }
+            int explicit = 0;
+            for (; i < end; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9 || explicit > 10_000) {
+                    return slowParse(buffer, start, end);
+                }
+                explicit = explicit * 10 + digit;
+            }
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+
+        float value;
+        if (mantissa == 0) {
+            value = 0f;
+        } else if (mantissa < (1L << 24) && Math.abs(exponent) < FLOAT_POW10.length) {
+            // Both operands are exact floats, so one float operation rounds correctly
+            value = exponent < 0 ? mantissa / FLOAT_POW10[-exponent] : mantissa * FLOAT_POW10[exponent];
+        } else if (mantissa < (1L << 53) && Math.abs(exponent) < DOUBLE_POW10.length) {
+            double exact = exponent < 0 ? mantissa / DOUBLE_POW10[-exponent] : mantissa * DOUBLE_POW10[exponent];
+            if (isFloatMidpoint(exact)) {
+                // Rounding to double then to float could round twice the same way
+                return slowParse(buffer, start, end);
+            }
+            value = (float) exact;
+        } else {
+            return slowParse(buffer, start, end);
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return True if a double lies exactly halfway between two adjacent
+     *         floats, the only case where rounding it to float can differ from
+     *         rounding the original decimal
+     */
+    private static boolean isFloatMidpoint(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        // A double has 29 more mantissa bits than a float; halfway is 1 followed by 28 zeros
+        return (bits & ((1L << 29) - 1)) == (1L << 28);
+    }
+
+    private static float slowParse(MappedByteBuffer buffer, int start, int end) {
+        byte[] token = new byte[end - start];
+        for (int i = 0; i < token.length; i++) {
+            token[i] = buffer.get(start + i);
+        }
+        return Float.parseFloat(new String(token, StandardCharsets.US_ASCII));
+    }
+
+    private static IllegalArgumentException notANumber(MappedByteBuffer buffer, int start, int end, Path path) {
+        byte[] token = new byte[end - start];
+        for (int i = 0; i < token.length; i++) {
+            token[i] = buffer.get(start + i);
+        }
+        return new IllegalArgumentException(
+                path + ": \"" + new String(token, StandardCharsets.US_ASCII) + "\" is not an integer");
+    }
+}
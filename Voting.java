@@ -0,0 +1,83 @@
+/**
+ * Strategies for turning the k nearest neighbours of a query into a single
+ * predicted label. Each neighbour adds a weight to its class and the class
+ * with the highest total wins. Ties on the total go to the class whose
+ * closest neighbour ranks first, so the outcome never depends on label values
+ * or hash ordering. Any number of distinct labels is supported.
+ *
+ * @version 1.0
+ */
+public enum Voting {
+
+    /** Every neighbour counts once. */
+    MAJORITY {
+        @Override
+        double weight(int rank, double distance, int k) {
+            return 1;
+        }
+    },
+
+    /**
+     * Neighbours count by the inverse of their distance. Exact matches are
+     * clamped to the smallest normal double distance rather than dividing by
+     * zero.
+     */
+    INVERSE_DISTANCE {
+        @Override
+        double weight(int rank, double distance, int k) {
+            return 1.0 / Math.max(distance, Double.MIN_NORMAL);
+        }
+    },
+
+    /** The closest neighbour counts k, the next k - 1, and so on down to 1. */
+    RANK {
+        @Override
+        double weight(int rank, double distance, int k) {
+            return k - rank;
+        }
+    };
+
+    /**
+     * @param rank     Position of the neighbour, 0 for the closest
+     * @param distance Distance from the query to the neighbour
+     * @param k        Number of neighbours taking part in the vote
+     * @return The weight the neighbour adds to its class
+     */
+    abstract double weight(int rank, double distance, int k);
+
+    /**
+     * Elects a label from a query's neighbours.
+     *
+     * @param neighbours  Neighbours of the query, closest first
+     * @param trainLabels Labels of the training rows the neighbours index into
+     * @return The winning label
+     */
+    public int vote(Neighbours neighbours, int[] trainLabels) {
+        int k = neighbours.size();
+        if (k == 0) {
+            throw new IllegalArgumentException("Cannot vote without neighbours");
+        }
+        // Classes are stored in order of first appearance, i.e. by closest member
+        int[] classes = new int[k];
+        double[] scores = new double[k];
+        int classCount = 0;
+        for (int rank = 0; rank < k; rank++) {
+            int label = trainLabels[neighbours.index(rank)];
+            int slot = 0;
+            while (slot < classCount && classes[slot] != label) {
+                slot++;
+            }
+            if (slot == classCount) {
+                classes[classCount++] = label;
+            }
+            scores[slot] += weight(rank, neighbours.distance(rank), k);
+        }
+        int best = 0;
+        for (int slot = 1; slot < classCount; slot++) {
+            if (scores[slot] > scores[best]) {
+                best = slot;
+            }
+        }
+        return classes[best];
+    }
+}
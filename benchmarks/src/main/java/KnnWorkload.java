@@ -0,0 +1,110 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+import bench.Workload;
+
+/**
+ * Binds {@link Workload} to kNN2. It lives in the default package so that it
+ * can reach the project classes and kNN2's package-private methods.
+ *
+ * @version 1.0
+ */
+public class KnnWorkload implements Workload {
+
+    private File trainDataFile;
+    private File trainLabelFile;
+    private Dataset train;
+    private Dataset test;
+
+    @Override
+    public void prepare(int trainRows, int testRows, int features, long seed, Path directory) throws IOException {
+        Random random = new Random(seed);
+        train = synthetic(trainRows, features, random);
+        test = synthetic(testRows, features, random);
+        if (directory != null) {
+            trainDataFile = directory.resolve("train_data.txt").toFile();
+            trainLabelFile = directory.resolve("train_label.txt").toFile();
+            writeText(train, trainDataFile.toPath(), trainLabelFile.toPath());
+        }
+        kNN2.TRAIN_DATA = train;
+        kNN2.TEST_DATA = test;
+        kNN2.initalPopulationLength = features;
+        // Same seed, same population and offspring, so versions are timed on identical work
+        kNN2.RUN_SEED = seed;
+    }
+
+    @Override
+    public Object parseData() throws IOException {
+        return kNN2.parseData(trainDataFile);
+    }
+
+    @Override
+    public int[] parseLabel() throws IOException {
+        return kNN2.parseLabel(trainLabelFile);
+    }
+
+    @Override
+    public float[][] euclideanDistances() {
+        return kNN2.calculateEuclideanDistances(test, train);
+    }
+
+    @Override
+    public float[][] manhattanDistances() {
+        return kNN2.calculateManhattanDistances(test, train);
+    }
+
+    @Override
+    public int[] predictLabel(float[][] distances) {
+        return kNN2.predictLabel(distances, train.labels());
+    }
+
+    @Override
+    public Object geneticAlgorithmGeneration(int populationSize, int mutationChance) {
+        // Scores the initial population, breeds and scores one generation, then stops on the budget
+        kNN2.MAX_GENERATIONS = 1;
+        kNN2.CHECKPOINT_PATH = null;
+        return kNN2.calculateGeneticAlgorithm(Double.POSITIVE_INFINITY, populationSize, mutationChance);
+    }
+
+    /**
+     * Two classes whose feature means differ slightly, so that accuracy
+     * depends on which features are selected.
+     */
+    private static Dataset synthetic(int rows, int features, Random random) {
+        float[] values = new float[rows * features];
+        int[] labels = new int[rows];
+        for (int r = 0; r < rows; r++) {
+            labels[r] = random.nextInt(2);
+            for (int c = 0; c < features; c++) {
+                float shift = c % 4 == 0 ? 0.2f * labels[r] : 0;
+                values[r * features + c] = random.nextFloat() + shift;
+            }
+        }
+        return new Dataset(values, rows, features).withLabels(labels);
+    }
+
+    private static void writeText(Dataset data, Path dataPath, Path labelPath) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(dataPath)) {
+            for (int r = 0; r < data.rows(); r++) {
+                for (int c = 0; c < data.cols(); c++) {
+                    if (c > 0) {
+                        writer.write(' ');
+                    }
+                    writer.write(String.format(Locale.ROOT, "%.6f", data.get(r, c)));
+                }
+                writer.newLine();
+            }
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(labelPath)) {
+            for (int label : data.labels()) {
+                writer.write(' ');
+                writer.write(Integer.toString(label));
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full test-by-train distance matrices and the 1-NN prediction over one.
+ * predictLabel also writes output2.txt, which is part of what it costs.
+ *
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceBenchmark {
+
+    @Param({"200", "5000"})
+    public int trainRows;
+
+    @Param({"200"})
+    public int testRows;
+
+    @Param({"61", "512"})
+    public int features;
+
+    private Workload workload;
+    private float[][] distances;
+
+    @Setup
+    public void setUp() throws IOException {
+        workload = Workload.load();
+        workload.prepare(trainRows, testRows, features, 17, null);
+        distances = workload.euclideanDistances();
+    }
+
+    @Benchmark
+    public float[][] euclideanDistances() {
+        return workload.euclideanDistances();
+    }
+
+    @Benchmark
+    public float[][] manhattanDistances() {
+        return workload.manhattanDistances();
+    }
+
+    @Benchmark
+    public int[] predictLabel() {
+        return workload.predictLabel(distances);
+    }
+}
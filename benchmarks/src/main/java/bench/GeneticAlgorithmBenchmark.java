@@ -0,0 +1,69 @@
+package bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A one-generation run of kNN2.calculateGeneticAlgorithm: scoring the
+ * initial population, then selection, crossover, mutation and scoring of one
+ * new generation, including creating the thread pool and fitness cache.
+ *
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneticAlgorithmBenchmark {
+
+    @Param({"200", "2000"})
+    public int rows;
+
+    @Param({"61", "512"})
+    public int features;
+
+    @Param({"100"})
+    public int populationSize;
+
+    @Param({"5"})
+    public int mutationChance;
+
+    private Workload workload;
+    private PrintStream out;
+
+    @Setup
+    public void setUp() throws IOException {
+        workload = Workload.load();
+        workload.prepare(rows, rows, features, 17, null);
+        // The algorithm prints a line per generation
+        out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(out);
+    }
+
+    @Benchmark
+    public Object generation() {
+        return workload.geneticAlgorithmGeneration(populationSize, mutationChance);
+    }
+}
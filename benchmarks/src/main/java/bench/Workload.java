@@ -0,0 +1,63 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The kNN entry points exercised by the benchmarks.
+ * <p>
+ * The project classes live in the default package, which a named package
+ * cannot import, and JMH refuses benchmarks in the default package. The
+ * implementation, KnnWorkload, therefore sits in the default package and is
+ * loaded by name through {@link #load()}.
+ *
+ * @version 1.0
+ */
+public interface Workload {
+
+    /**
+     * Generates a labelled synthetic training and test set and keeps them in
+     * memory, optionally also writing the training set as text files in the
+     * project's format.
+     *
+     * @param trainRows Number of training patterns
+     * @param testRows  Number of test patterns
+     * @param features  Number of features per pattern
+     * @param seed      Seed of the generator
+     * @param directory Directory receiving the text files, or null to skip them
+     */
+    void prepare(int trainRows, int testRows, int features, long seed, Path directory) throws IOException;
+
+    /** @return The training features parsed by kNN2.parseData */
+    Object parseData() throws IOException;
+
+    /** @return The training labels parsed by kNN2.parseLabel */
+    int[] parseLabel() throws IOException;
+
+    /** @return The test-by-train Euclidean distance matrix */
+    float[][] euclideanDistances();
+
+    /** @return The test-by-train Manhattan distance matrix */
+    float[][] manhattanDistances();
+
+    /** @return 1-NN predictions for a test-by-train distance matrix */
+    int[] predictLabel(float[][] distances);
+
+    /**
+     * Runs one generation of the genetic algorithm over the prepared data.
+     *
+     * @return The fittest chromosome of the generation
+     */
+    Object geneticAlgorithmGeneration(int populationSize, int mutationChance);
+
+    /**
+     * @return A new instance of the default-package implementation
+     */
+    static Workload load() {
+        try {
+            return (Workload) Class.forName("KnnWorkload").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("KnnWorkload is not on the class path", e);
+        }
+    }
+}
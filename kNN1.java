@@ -1,12 +1,14 @@
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.List;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.IntStream;
 
 
@@ -18,91 +20,85 @@ import java.util.stream.IntStream;
 
 public class kNN1 {
     
-    public static void main(String[] args) throws FileNotFoundException {
-        ArrayList<ArrayList<Float>> trainDataArray = new ArrayList<>(parseData(new File("train_data.txt")));
-        ArrayList<ArrayList<Float>> testDataArray = new ArrayList<>(parseData(new File("test_data.txt")));
-        ArrayList<Integer> trainLabelArray = new ArrayList<>(parseLabel(new File("train_label.txt")));
-        ArrayList<Integer> testLabelArray = new ArrayList<>(parseLabel(new File("test_label.txt")));
-        ArrayList<ArrayList<Double>> euclideanDistances = new ArrayList<>(calculateEuclidean(testDataArray, trainDataArray));
-        ArrayList<Integer> predictions = predictLabel(euclideanDistances, trainLabelArray);
-        Double accuracy = calculateAccuracy(predictions,testLabelArray);
+    /**
+     * Classifies the test set and prints the accuracy
+     * @param args Optional number of neighbours k (default 1), voting rule
+     *             MAJORITY, INVERSE_DISTANCE or RANK (default MAJORITY),
+     *             number of scoring threads (default 1, which scans sequentially)
+     *             and "norm-expansion" to score the test set as a matrix product
+     *             instead of scanning
+     */
+    public static void main(String[] args) throws IOException {
+        int k = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        Voting voting = args.length > 1 ? Voting.valueOf(args[1]) : Voting.MAJORITY;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        boolean normExpansion = args.length > 3 && args[3].equals("norm-expansion");
+        Metrics.startReporter(System.out);
+        Dataset trainData = BinaryDataset.readOrParseText(Paths.get("train.knnb"), Paths.get("train_data.txt"),
+                Paths.get("train_label.txt"));
+        Dataset testData = BinaryDataset.readOrParseText(Paths.get("test.knnb"), Paths.get("test_data.txt"),
+                Paths.get("test_label.txt"));
+        ForkJoinPool pool = threads > 1 && !normExpansion ? new ForkJoinPool(threads) : null;
+        int[] predictions;
+        try {
+            NeighbourSearch search = normExpansion ? new NormExpansionSearch(trainData)
+                    : pool != null ? new ParallelBruteForceSearch(trainData, Metric.EUCLIDEAN, pool)
+                    : new BruteForceSearch(trainData, Metric.EUCLIDEAN);
+            predictions = new KnnClassifier(search, trainData.labels(), k, voting).predict(testData);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        writePredictions(predictions);
+        Double accuracy = calculateAccuracy(predictions, testData.labels());
         System.out.println(accuracy.toString());
+        Metrics.writeConfiguredSnapshot();
     }
 
     /**
-     * Parses file to float and creates a 2D ArrayList of features
+     * Parses file to float and creates a dense row-major Dataset of features
      * @param file Train and test data to parse
      */
-    public static ArrayList<ArrayList<Float>> parseData(File file) throws FileNotFoundException {
+    public static Dataset parseData(File file) throws FileNotFoundException {
 
-        ArrayList<ArrayList<Float>> dataArray = new ArrayList<>();
+        List<float[]> rows = new ArrayList<>();
         Scanner dataScanner = new Scanner(file);
         while (dataScanner.hasNextLine()) {
-            dataArray.add(new ArrayList<>(Arrays.asList(
-                    Arrays.stream(dataScanner.nextLine().split(" ")).map(Float::valueOf).toArray(Float[]::new))));
+            String[] tokens = dataScanner.nextLine().split(" ");
+            float[] row = new float[tokens.length];
+            for (int i = 0; i < tokens.length; i++) {
+                row[i] = Float.parseFloat(tokens[i]);
+            }
+            rows.add(row);
         }
         dataScanner.close();
 
-        return dataArray;
+        return Dataset.fromRows(rows);
     }
 
     /**
-     * Parses String labels to Integer and creates an ArrayList<Integer>
+     * Parses String labels to int and creates an int[]
      * 
-     * @return An ArrayList<Integer> containing labels consisting of 0 and 1
+     * @return An int[] containing labels consisting of 0 and 1
      */
-    public static ArrayList<Integer> parseLabel(File file) throws FileNotFoundException {
-        ArrayList<Integer> labelArr = new ArrayList<>();
+    public static int[] parseLabel(File file) throws FileNotFoundException {
+        List<Integer> labelArr = new ArrayList<>();
         Scanner labelReader = new Scanner(file);
         while (labelReader.hasNext()) {
             labelArr.add(Integer.parseInt(labelReader.next()));
         }
         labelReader.close();
-        return labelArr;
+        return labelArr.stream().mapToInt(Integer::intValue).toArray();
     }
 
-    /**
-     * Calculates the Euclidean distance of every test pattern to all training patterns
-     * @param testInput Test Patterns
-     * @param trainInput Train Patterns
-     */
-    private static ArrayList<ArrayList<Double>> calculateEuclidean(ArrayList<ArrayList<Float>> testInput,ArrayList<ArrayList<Float>> trainInput) {
-        ArrayList<ArrayList<Double>> distances = new ArrayList<>();
-        ArrayList<Double> innerArr;
-        for (int i = 0; i < testInput.size(); i++) {
-            innerArr = new ArrayList<>();
-            for (int j = 0; j < trainInput.size(); j++) {
-                double sum = 0;
-                for (int k = 0; k < testInput.get(i).size(); k++) {
-                    sum += Math.pow(testInput.get(i).get(k) - trainInput.get(j).get(k), 2);
-                }
-                innerArr.add(Math.sqrt(sum));
-            }
-            distances.add(innerArr);
-        }
-        return distances;
-    }
-
-    /**
-     * Finds the label of the nearest neighbour
-     * @param inputArr ArrayList containing calculated distances
-     * @param labels ArrayList of labels
-     * @return ArrayList of predictions
-     */
-    public static ArrayList<Integer> predictLabel(ArrayList<ArrayList<Double>> inputArr, ArrayList<Integer> labels) {
-        ArrayList<Integer> predictions = new ArrayList<>();
-        for (ArrayList<Double> innerArr : inputArr) {
-            int minIndex = labels.get(innerArr.indexOf(Collections.min(innerArr)));
-            predictions.add(minIndex);
-        }
+    private static void writePredictions(int[] predictions) {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter("output1.txt"))) {
-            writer.write(predictions.toString());
+            writer.write(Arrays.toString(predictions));
         }
         catch (IOException e) {
             e.printStackTrace();
         }
-        return predictions;
-
     }
 
     /**
@@ -112,8 +108,8 @@ public class kNN1 {
      * @param actuals Test labels
      * @return Accuracy of the predictions
      */
-    public static Double calculateAccuracy (ArrayList<Integer> predictions, ArrayList<Integer> actuals) {
-        return (double) IntStream.range(0, actuals.size()).filter(i -> actuals.get(i).equals(predictions.get(i))).count() / actuals.size() * 100;
+    public static Double calculateAccuracy (int[] predictions, int[] actuals) {
+        return (double) IntStream.range(0, actuals.length).filter(i -> actuals[i] == predictions[i]).count() / actuals.length * 100;
     }
 
 }
@@ -4,8 +4,15 @@ import java.nio.file.*;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
 import java.util.stream.IntStream;
 
 public class kNN2 {
@@ -18,53 +25,116 @@ public class kNN2 {
     static final String TEST_DATA_PATH = "ai-a2/test_data.txt";
     static final String TRAIN_LABEL_PATH = "ai-a2/train_label.txt";
     static final String TEST_LABEL_PATH = "ai-a2/test_label.txt";
-    static List<List<Float>> TRAIN_DATA = new ArrayList<>();
-    static List<List<Float>> TEST_DATA = new ArrayList<>();
-    static List<Integer> TEST_LABEL = new ArrayList<>();
-    static List<Integer> TRAIN_LABEL = new ArrayList<>();
+    // PRE-CONVERTED BINARY COPIES, USED INSTEAD OF THE TEXT FILES WHEN PRESENT
+    static final String TRAIN_BINARY_PATH = "ai-a2/train.knnb";
+    static final String TEST_BINARY_PATH = "ai-a2/test.knnb";
+    static Dataset TRAIN_DATA;
+    static Dataset TEST_DATA;
     static int initalPopulationLength;
+    // NUMBER OF NEIGHBOURS AND VOTING RULE USED BY EVERY PREDICTION
+    static int K = 1;
+    static Voting VOTING = Voting.MAJORITY;
+    // SCORING MODE: "sequential" SCAN, "parallel" FORK-JOIN TILES ON SCORING_THREADS THREADS, "early-abandon"
+    // SCAN THAT DROPS ROWS ONCE THEY CANNOT WIN, "norm-expansion" EUCLIDEAN MATRIX PRODUCT, OR APPROXIMATE "ivf"
+    // SCANNING IVF_PROBES OF ABOUT sqrt(N) LISTS
+    static String SCORING_MODE = "sequential";
+    static int SCORING_THREADS = Runtime.getRuntime().availableProcessors();
+    static int IVF_PROBES = 8;
+    private static ForkJoinPool scoringPool;
+    // NUMBER OF THREADS SCORING GA CANDIDATES CONCURRENTLY
+    static int FITNESS_THREADS = Runtime.getRuntime().availableProcessors();
+    // NUMBER OF CHROMOSOME FITNESS VALUES REMEMBERED ACROSS GENERATIONS
+    static int FITNESS_CACHE_SIZE = 4096;
+    // DERIVE A CHILD'S DISTANCES FROM A SIMILAR CHROMOSOME INSTEAD OF RECOMPUTING THEM.
+    // EACH REMEMBERED CHROMOSOME COSTS TEST ROWS x TRAIN ROWS DOUBLES; DATASETS WHOSE SINGLE
+    // MATRIX EXCEEDS THE BYTE BUDGET ARE SCORED DIRECTLY INSTEAD
+    static boolean INCREMENTAL_FITNESS = true;
+    static long INCREMENTAL_FITNESS_BYTES = 256L << 20;
+    // FITNESS BY CROSS-VALIDATION ON THE TRAINING SET: 0 SCORES ON THE TEST SET INSTEAD,
+    // N SPLITS THE TRAINING SET INTO N FOLDS, TRAIN_DATA.rows() MEANS LEAVE-ONE-OUT
+    static int CROSS_VALIDATION_FOLDS = 0;
+    // EVOLUTION: HOW PARENTS ARE CHOSEN AND COMBINED, AND HOW MANY OF THE FITTEST SURVIVE UNCHANGED
+    static Selection SELECTION = Selection.tournament(3);
+    static CrossoverOperator CROSSOVER = CrossoverOperator.twoPoint();
+    static double CROSSOVER_RATE = 0.9;
+    static int ELITISM = 2;
+    // STOPPING: GENERATION BUDGET, WALL-CLOCK BUDGET, GENERATIONS WITHOUT IMPROVEMENT
+    static int MAX_GENERATIONS = 200;
+    static long MAX_SECONDS = 600;
+    static int PATIENCE = 25;
+    // CHECKPOINTS: OFF UNLESS -Dknn.checkpoint NAMES A FILE; THE GA STATE IS THEN SAVED THERE EVERY
+    // CHECKPOINT_INTERVAL GENERATIONS, AND RESUME CONTINUES FROM THAT FILE INSTEAD OF STARTING A NEW POPULATION
+    static String CHECKPOINT_PATH = System.getProperty("knn.checkpoint");
+    static int CHECKPOINT_INTERVAL = 10;
+    static boolean RESUME = false;
+    // RANDOMNESS: EVERY RANDOM NUMBER OF A RUN COMES FROM RUN_SEED, SET WITH -Dknn.seed OR DRAWN FRESH AND PRINTED
+    // SO THE RUN CAN BE REPEATED. EACH USE HAS ITS OWN NUMBERED STREAM, SO ONE USE NEVER SHIFTS ANOTHER'S NUMBERS
+    static long RUN_SEED = Long.getLong("knn.seed", new Random().nextLong());
+    static final int INITIAL_POPULATION_STREAM = 0;
+    static final int EVOLUTION_STREAM = 1;
+    static final int IVF_STREAM = 2;
+    static final int CROSS_VALIDATION_STREAM = 3;
 
+    /**
+     * Runs the genetic algorithm and verifies the fittest parent.
+     *
+     * @param args Optional scoring mode, "sequential" (default), "parallel",
+     *             "early-abandon", "norm-expansion" or "ivf", followed by the
+     *             number of scoring threads, the number of cross-validation
+     *             folds (default 0, score on the test set) and "resume" to
+     *             continue from the checkpoint named by -Dknn.checkpoint.
+     */
     public static void main(String[] args) {
+        if (args.length > 0) {
+            SCORING_MODE = args[0];
+        }
+        if (args.length > 1) {
+            SCORING_THREADS = Integer.parseInt(args[1]);
+        }
+        if (args.length > 2) {
+            CROSS_VALIDATION_FOLDS = Integer.parseInt(args[2]);
+        }
+        if (args.length > 3) {
+            RESUME = args[3].equals("resume");
+        }
+        Metrics.startReporter(System.out);
+        System.out.println("Seed: " + RUN_SEED);
         try {
-            TRAIN_DATA = parseData(Paths.get(TRAIN_DATA_PATH).toFile());
-            TEST_DATA = parseData(Paths.get(TEST_DATA_PATH).toFile());
-            TRAIN_LABEL = parseLabel(Paths.get(TRAIN_LABEL_PATH).toFile());
-            TEST_LABEL = parseLabel(Paths.get(TEST_LABEL_PATH).toFile());
-            initalPopulationLength = TRAIN_DATA.get(0).size();
+            TRAIN_DATA = BinaryDataset.readOrParseText(Paths.get(TRAIN_BINARY_PATH), Paths.get(TRAIN_DATA_PATH),
+                    Paths.get(TRAIN_LABEL_PATH));
+            TEST_DATA = BinaryDataset.readOrParseText(Paths.get(TEST_BINARY_PATH), Paths.get(TEST_DATA_PATH),
+                    Paths.get(TEST_LABEL_PATH));
+            initalPopulationLength = TRAIN_DATA.cols();
 
-            String a = calculateGeneticAlgorithm(100, 100, 5);
+            Chromosome a = calculateGeneticAlgorithm(100, 100, 5);
             System.out.println(
-                    "Solo test accuracy is " + soloTest(TEST_DATA, TRAIN_DATA, TEST_LABEL, TRAIN_LABEL, a) + " for "
-                            + a);
-        } catch (FileNotFoundException e) {
+                    "Solo test accuracy is " + soloTest(TEST_DATA, TRAIN_DATA, a) + " for " + a);
+            Metrics.writeConfiguredSnapshot();
+        } catch (NoSuchFileException e) {
             System.out.println("One or more files were not found.");
             e.printStackTrace();
+        } catch (IOException e) {
+            System.out.println("One or more files could not be read.");
+            e.printStackTrace();
         }
     }
 
     /**
      * Verifies the accuracy of the fittest parent from the genetic algorithm.
      *
-     * @param testSet    The test set, represented as a list of points. Each point
-     *                   is a list of floats.
-     * @param trainSet   The training set, represented as a list of points. Each
-     *                   point is a list of floats.
-     * @param testLabel  The labels for the test set.
-     * @param trainLabel The labels for the training set.
-     * @param parent     A binary string representing which features to use for the
-     *                   test. A '1' at a position indicates that the corresponding
-     *                   feature should be used, and a '0' indicates that it should
-     *                   be ignored.
+     * @param testSet    The labelled test set.
+     * @param trainSet   The labelled training set.
+     * @param parent     A chromosome representing which features to use for the
+     *                   test. A set bit at a position indicates that the
+     *                   corresponding feature should be used, and a clear bit
+     *                   indicates that it should be ignored.
      * @return The accuracy of the predictions, represented as a double.
      */
-    public static Double soloTest(List<List<Float>> testSet, List<List<Float>> trainSet, List<Integer> testLabel,
-            List<Integer> trainLabel, String parent) {
-        List<List<Float>> testList = retrieveDataFromBinaryString(findIndicesofOnes(List.of(parent)).get(0), testSet);
-        List<List<Float>> trainList = retrieveDataFromBinaryString(findIndicesofOnes(List.of(parent)).get(0), trainSet);
-        List<List<Float>> eucs = calculateEuclideanDistances(testList, trainList);
-        List<Integer> pred = predictLabel(eucs, trainLabel);
-
-        return calculateAccuracy(pred, testLabel);
+    public static Double soloTest(Dataset testSet, Dataset trainSet, Chromosome parent) {
+        Dataset testList = retrieveDataFromBinaryString(parent.features(), testSet);
+        Dataset trainList = retrieveDataFromBinaryString(parent.features(), trainSet);
+
+        return shortcutEuclidean(testList, trainList);
     }
 
     //////////////////////////////////////////////
@@ -73,25 +143,30 @@ public class kNN2 {
 
     /**
      * This method reads a file containing data points, parses the points from
-     * String to Float, and stores them in a 2D list.
+     * String to float, and stores them in a dense row-major Dataset.
      * Each line in the file should represent a data point, with the features of the
      * point separated by spaces.
      *
      * @param file The file containing data points.
-     * @return A 2D list of data points, where each inner list represents a data
-     *         point and contains the features of the point as Floats.
+     * @return An unlabelled Dataset with one row per line of the file.
      * @throws FileNotFoundException If the provided file does not exist.
+     * @throws IllegalArgumentException If the lines do not all have the same
+     *                                  number of features.
      */
-    public static List<List<Float>> parseData(File file) throws FileNotFoundException {
-        List<List<Float>> dataList = new ArrayList<>();
+    public static Dataset parseData(File file) throws FileNotFoundException {
+        List<float[]> dataList = new ArrayList<>();
         Scanner dataScanner = new Scanner(file);
 
         while (dataScanner.hasNextLine()) {
-            dataList.add(new ArrayList<>(Arrays.asList(
-                    Arrays.stream(dataScanner.nextLine().split(" ")).map(Float::valueOf).toArray(Float[]::new))));
+            String[] tokens = dataScanner.nextLine().split(" ");
+            float[] row = new float[tokens.length];
+            for (int i = 0; i < tokens.length; i++) {
+                row[i] = Float.parseFloat(tokens[i]);
+            }
+            dataList.add(row);
         }
         dataScanner.close();
-        return dataList;
+        return Dataset.fromRows(dataList);
     }
 
     ///////////////////////////////////////////////
@@ -100,21 +175,21 @@ public class kNN2 {
 
     /**
      * This method reads a file containing labels, parses the labels from String to
-     * Integer, and stores them in a list.
+     * int, and stores them in an array.
      *
      * @param file The file containing labels. Each label should be represented as a
      *             separate String.
-     * @return A list of labels, represented as Integers.
+     * @return An array of labels.
      * @throws FileNotFoundException If the provided file does not exist.
      */
-    public static List<Integer> parseLabel(File file) throws FileNotFoundException {
+    public static int[] parseLabel(File file) throws FileNotFoundException {
         List<Integer> labelArr = new ArrayList<>();
         Scanner labelReader = new Scanner(file);
         while (labelReader.hasNext()) {
             labelArr.add(Integer.parseInt(labelReader.next()));
         }
         labelReader.close();
-        return labelArr;
+        return labelArr.stream().mapToInt(Integer::intValue).toArray();
     }
 
     ////////////////////////////////////////////////
@@ -128,69 +203,65 @@ public class kNN2 {
     /**
      * This method calculates the Euclidean distances between each pair of points in
      * the test set and the training set.
-     * Each point is represented as a list of floats, and the distance between two
-     * points is calculated as the square root of the sum of the squares of the
-     * differences of their corresponding features.
+     * The distance between two points is calculated as the square root of the sum
+     * of the squares of the differences of their corresponding features.
      *
-     * @param testInput  The test set, represented as a list of points. Each point
-     *                   is a list of floats.
-     * @param trainInput The training set, represented as a list of points. Each
-     *                   point is a list of floats.
-     * @return A 2D list of floats, where each inner list represents the distances
-     *         from a test point to all training points.
+     * @param testInput  The test set.
+     * @param trainInput The training set.
+     * @return A 2D array of floats, where each row holds the distances from a
+     *         test point to all training points.
      */
-    private static List<List<Float>> calculateEuclideanDistances(List<List<Float>> testInput,
-            List<List<Float>> trainInput) {
-        List<List<Float>> distances = new ArrayList<>();
-        List<Float> innerArr;
+    static float[][] calculateEuclideanDistances(Dataset testInput, Dataset trainInput) {
+        float[] test = testInput.values();
+        float[] train = trainInput.values();
+        int features = testInput.cols();
+        float[][] distances = new float[testInput.rows()][trainInput.rows()];
 
-        for (int i = 0; i < testInput.size(); i++) {
-            innerArr = new ArrayList<>();
+        for (int i = 0; i < testInput.rows(); i++) {
+            int testBase = testInput.offset(i);
 
-            for (int j = 0; j < trainInput.size(); j++) {
+            for (int j = 0; j < trainInput.rows(); j++) {
+                int trainBase = trainInput.offset(j);
                 double sum = 0;
 
-                for (int k = 0; k < testInput.get(i).size(); k++) {
-                    sum += Math.pow(testInput.get(i).get(k) - trainInput.get(j).get(k), 2);
+                for (int k = 0; k < features; k++) {
+                    double diff = test[testBase + k] - train[trainBase + k];
+                    sum += diff * diff;
                 }
 
-                innerArr.add((float) Math.sqrt(sum));
+                distances[i][j] = (float) Math.sqrt(sum);
             }
-
-            distances.add(innerArr);
         }
 
         return distances;
     }
 
     /**
-     * This method calculates the Euclidean distances between each pair of points in
+     * This method calculates the Manhattan distances between each pair of points in
      * the test set and the training set.
-     * Each point is represented as a list of floats, and the distance between two
-     * points is calculated as the square root of the sum of the squares of the
+     * The distance between two points is calculated as the sum of the absolute
      * differences of their corresponding features.
      *
-     * @param testInput  The test set, represented as a list of points. Each point
-     *                   is a list of floats.
-     * @param trainInput The training set, represented as a list of points. Each
-     *                   point is a list of floats.
-     * @return A 2D list of floats, where each inner list represents the distances
-     *         from a test point to all training points.
+     * @param testInput  The test set.
+     * @param trainInput The training set.
+     * @return A 2D array of floats, where each row holds the distances from a
+     *         test point to all training points.
      */
-    private static List<List<Float>> calculateManhattanDistances(List<List<Float>> testInput,
-            List<List<Float>> trainInput) {
-        List<List<Float>> distances = new ArrayList<>();
-        List<Float> innerArr;
-        for (int i = 0; i < testInput.size(); i++) {
-            innerArr = new ArrayList<>();
-            for (int j = 0; j < trainInput.size(); j++) {
+    static float[][] calculateManhattanDistances(Dataset testInput, Dataset trainInput) {
+        float[] test = testInput.values();
+        float[] train = trainInput.values();
+        int features = testInput.cols();
+        float[][] distances = new float[testInput.rows()][trainInput.rows()];
+        for (int i = 0; i < testInput.rows(); i++) {
+            int testBase = testInput.offset(i);
+            for (int j = 0; j < trainInput.rows(); j++) {
+                int trainBase = trainInput.offset(j);
                 double sum = 0;
-                for (int k = 0; k < testInput.get(i).size(); k++) {
-                    sum += Math.abs(testInput.get(i).get(k) - trainInput.get(j).get(k));
+                for (int k = 0; k < features; k++) {
+                    sum += Math.abs(test[testBase + k] - train[trainBase + k]);
                 }
-                innerArr.add((float) sum);
+                distances[i][j] = (float) sum;
             }
-            distances.add(innerArr);
         }
         return distances;
     }
@@ -202,11 +273,11 @@ public class kNN2 {
      * @param TEST_LABEL  Test labels
      * @return Accuracy of the predictions
      */
-    public static Double calculateAccuracy(List<Integer> predictions, List<Integer> TEST_LABEL) {
+    public static Double calculateAccuracy(int[] predictions, int[] TEST_LABEL) {
         try {
-            return (double) IntStream.range(0, TEST_LABEL.size())
-                    .filter(i -> TEST_LABEL.get(i).equals(predictions.get(i)))
-                    .count() / TEST_LABEL.size() * 100;
+            return (double) IntStream.range(0, TEST_LABEL.length)
+                    .filter(i -> TEST_LABEL[i] == predictions[i])
+                    .count() / TEST_LABEL.length * 100;
         } catch (IndexOutOfBoundsException e) {
             return null;
         }
@@ -223,50 +294,117 @@ public class kNN2 {
     /**
      * Finds the label of the nearest neighbour
      * 
-     * @param inputToPredict List containing distances
-     * @param trainLabels    List of TRAINING labels
-     * @return List of predictions
+     * @param inputToPredict Array containing distances
+     * @param trainLabels    Array of TRAINING labels
+     * @return Array of predictions
      */
-    public static List<Integer> predictLabel(List<List<Float>> inputToPredict, List<Integer> trainLabels) {
-        List<Integer> predictions = new ArrayList<>();
-        for (List<Float> innerArr : inputToPredict) {
-            int minIndex = innerArr.indexOf(Collections.min(innerArr));
-            predictions.add(trainLabels.get(minIndex));
+    public static int[] predictLabel(float[][] inputToPredict, int[] trainLabels) {
+        int[] predictions = new int[inputToPredict.length];
+        for (int i = 0; i < inputToPredict.length; i++) {
+            float[] innerArr = inputToPredict[i];
+            int minIndex = 0;
+            for (int j = 1; j < innerArr.length; j++) {
+                if (innerArr[j] < innerArr[minIndex]) {
+                    minIndex = j;
+                }
+            }
+            predictions[i] = trainLabels[minIndex];
         }
+        writePredictions(predictions);
+
+        return predictions;
+    }
+
+    /**
+     * Writes predictions to output2.txt, separated by spaces
+     * 
+     * @param predictions Array of predictions
+     */
+    private static void writePredictions(int[] predictions) {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter("output2.txt"))) {
             StringJoiner joiner = new StringJoiner(" ");
-            for (Integer prediction : predictions) {
-                joiner.add(prediction.toString());
+            for (int prediction : predictions) {
+                joiner.add(Integer.toString(prediction));
             }
             writer.write(joiner.toString());
         } catch (IOException e) {
             e.printStackTrace();
         }
-
-        return predictions;
     }
 
     /**
-     * Shortcut for calculating the accuracy of the model using the Euclidean
+     * Shortcut for calculating the accuracy of the model using the Euclidean.
+     * Streams over the training set per test point instead of building the full
+     * distance matrix, and votes among the K nearest neighbours.
      * 
      * @return Accuracy of the model as a double
      */
-    public static Double shortcutEuclidean(List<List<Float>> testSet, List<List<Float>> trainSet,
-            List<Integer> testLabel,
-
-            List<Integer> trainLabel) {
-        return calculateAccuracy(predictLabel(calculateEuclideanDistances(testSet, trainSet), trainLabel), testLabel);
+    public static Double shortcutEuclidean(Dataset testSet, Dataset trainSet) {
+        return shortcut(testSet, trainSet, Metric.EUCLIDEAN);
     }
 
     /**
-     * Shortcut for calculating the accuracy of the model using the Manhattan
+     * Shortcut for calculating the accuracy of the model using the Manhattan.
+     * Streams over the training set per test point instead of building the full
+     * distance matrix, and votes among the K nearest neighbours.
      * 
      * @return Accuracy of the model as a double
      */
-    public static Double shortcutManhattan(List<List<Float>> testData, List<List<Float>> trainData,
-            List<Integer> testLabel,
-            List<Integer> trainLabel) {
-        return calculateAccuracy(predictLabel(calculateManhattanDistances(testData, trainData), trainLabel), testLabel);
+    public static Double shortcutManhattan(Dataset testData, Dataset trainData) {
+        return shortcut(testData, trainData, Metric.MANHATTAN);
+    }
+
+    private static Double shortcut(Dataset testData, Dataset trainData, Metric metric) {
+        int[] predictions = new KnnClassifier(createSearch(trainData, metric), trainData.labels(), K, VOTING)
+                .predict(testData);
+        writePredictions(predictions);
+        return calculateAccuracy(predictions, testData.labels());
+    }
+
+    /**
+     * Creates the neighbour search selected by SCORING_MODE. The sequential,
+     * parallel and early-abandon modes return identical neighbours; the
+     * parallel one shares a single pool of SCORING_THREADS threads between
+     * calls. The norm-expansion mode is Euclidean only and matches them to
+     * within rounding. The ivf mode is approximate, and its k-means index is
+     * seeded from RUN_SEED.
+     *
+     * @param trainData The training set to search.
+     * @param metric    The distance metric.
+     * @return The neighbour search for SCORING_MODE.
+     * @throws IllegalArgumentException If SCORING_MODE is unknown, or is
+     *                                  norm-expansion with another metric.
+     */
+    static NeighbourSearch createSearch(Dataset trainData, Metric metric) {
+        switch (SCORING_MODE) {
+            case "sequential":
+                return new BruteForceSearch(trainData, metric);
+            case "parallel":
+                break;
+            case "early-abandon":
+                return new EarlyAbandonSearch(trainData, metric, true);
+            case "norm-expansion":
+                if (metric != Metric.EUCLIDEAN) {
+                    throw new IllegalArgumentException("Scoring mode norm-expansion needs the Euclidean metric, not "
+                            + metric);
+                }
+                return new NormExpansionSearch(trainData);
+            case "ivf":
+                return IvfSearch.build(trainData, metric, IVF_PROBES,
+                        new RandomStreams(RUN_SEED).stream(IVF_STREAM).nextLong());
+            default:
+                throw new IllegalArgumentException("Unknown scoring mode " + SCORING_MODE
+                        + ", expected sequential, parallel, early-abandon, norm-expansion or ivf");
+        }
+        synchronized (kNN2.class) {
+            if (scoringPool == null || scoringPool.getParallelism() != SCORING_THREADS) {
+                if (scoringPool != null) {
+                    scoringPool.shutdown();
+                }
+                scoringPool = new ForkJoinPool(SCORING_THREADS);
+            }
+            return new ParallelBruteForceSearch(trainData, metric, scoringPool);
+        }
     }
 
     //////////////////////////////////////////////////////////
@@ -278,224 +416,336 @@ public class kNN2 {
     ///////////////////////////////////////////////////////////////
 
     /**
-     * This method generates an initial population of binary strings for a genetic
+     * This method generates an initial population of chromosomes for a genetic
      * algorithm.
-     * Each binary string represents a possible selection of features for a
+     * Each chromosome represents a possible selection of features for a
      * k-Nearest Neighbors algorithm.
-     * The binary strings are generated randomly.
+     * The chromosomes are generated randomly, a word of bits at a time, from
+     * the initial population stream of RUN_SEED, so the same seed always
+     * gives the same population.
      *
      * @param initialPopulationSize The size of the initial population to generate.
-     * @param length                The length of the binary strings to generate.
-     * @return A list of binary strings representing the initial population.
+     * @return A list of chromosomes representing the initial population.
      */
-    public static List<String> generateinitialPopulation(int initialPopulationSize) {
-        List<String> binaryStrings = new ArrayList<>();
-        Random random = new Random();
+    public static List<Chromosome> generateinitialPopulation(int initialPopulationSize) {
+        return generateinitialPopulation(initialPopulationSize,
+                new RandomStreams(RUN_SEED).stream(INITIAL_POPULATION_STREAM));
+    }
 
-        for (int i = 0; i < initialPopulationSize; i++) {
-            StringBuilder binaryString = new StringBuilder();
+    /**
+     * Generates an initial population from the given source of randomness.
+     *
+     * @param initialPopulationSize The size of the initial population to generate.
+     * @param random                The source of randomness.
+     * @return A list of chromosomes representing the initial population.
+     */
+    public static List<Chromosome> generateinitialPopulation(int initialPopulationSize, RandomGenerator random) {
+        List<Chromosome> chromosomes = new ArrayList<>();
 
-            for (int j = 0; j < initalPopulationLength; j++) {
-                int randomBit = random.nextInt(2);
-                binaryString.append(randomBit);
-            }
-            binaryStrings.add(binaryString.toString());
+        for (int i = 0; i < initialPopulationSize; i++) {
+            chromosomes.add(Chromosome.random(initalPopulationLength, random));
         }
 
-        return binaryStrings;
+        return chromosomes;
     }
 
     /**
-     * This method finds the indices of '1's in each binary string in a list.
-     * Each binary string represents a possible selection of features for a
+     * This method finds the indices of the set bits in each chromosome in a list.
+     * Each chromosome represents a possible selection of features for a
      * k-Nearest Neighbors algorithm,
-     * where '1' indicates that the corresponding feature should be used, and '0'
-     * indicates that it should be ignored.
+     * where a set bit indicates that the corresponding feature should be used,
+     * and a clear bit indicates that it should be ignored.
      *
-     * @param parentSet A list of binary strings representing feature selections.
-     * @return A 2D list of integers, where each inner list represents the indices
-     *         of '1's in a binary string.
+     * @param parentSet A list of chromosomes representing feature selections.
+     * @return A list of index arrays, where each array holds the indices of the
+     *         set bits of a chromosome in ascending order.
      */
-    public static List<List<Integer>> findIndicesofOnes(List<String> parentSet) {
+    public static List<int[]> findIndicesofOnes(List<Chromosome> parentSet) {
 
-        List<List<Integer>> indices = new ArrayList<>();
+        List<int[]> indices = new ArrayList<>();
 
-        for (String binaryString : parentSet) {
-            List<Integer> innerIndices = new ArrayList<>();
-            for (int i = 0; i < binaryString.length(); i++) {
-                if (binaryString.charAt(i) == '1') {
-                    innerIndices.add(i);
-                }
-            }
-            indices.add(innerIndices);
+        for (Chromosome chromosome : parentSet) {
+            indices.add(chromosome.features());
         }
 
         return indices;
     }
 
     /**
-     * This method retrieves the data corresponding to the '1's in a binary string
-     * from a dataset.
-     * Each binary string represents a possible selection of features for a
-     * k-Nearest Neighbors algorithm,
-     * where '1' indicates that the corresponding feature should be used, and '0'
-     * indicates that it should be ignored.
+     * This method retrieves the data corresponding to the set bits of a
+     * chromosome from a dataset.
      *
-     * @param indices A list of integers representing the indices of '1's in a
-     *                binary string.
-     * @param dataSet The dataset, represented as a 2D list of floats. Each inner
-     *                list represents a data point and contains the features of the
-     *                point.
-     * @return A 2D list of floats, where each inner list represents a data point
-     *         and contains the features corresponding to the '1's in the binary
-     *         string.
+     * @param indices The indices of the set bits of a chromosome.
+     * @param dataSet The dataset to select features from.
+     * @return A Dataset with the same rows and labels, containing only the
+     *         features corresponding to the set bits.
      */
-    public static List<List<Float>> retrieveDataFromBinaryString(List<Integer> indices, List<List<Float>> dataSet) {
-        List<List<Float>> retrievedPattern = new ArrayList<>();
-        for (int i = 0; i < dataSet.size(); i++) {
-            List<Float> retrievedDataPoint = new ArrayList<>();
-            for (int indexToLookUp : indices) { // Fix variable name from 'list' to 'indices'
-                retrievedDataPoint.add(dataSet.get(i).get(indexToLookUp));
-            }
-            retrievedPattern.add(retrievedDataPoint);
-        }
-        return retrievedPattern;
+    public static Dataset retrieveDataFromBinaryString(int[] indices, Dataset dataSet) {
+        return dataSet.selectFeatures(indices);
     }
 
     /**
      * This method applies a genetic algorithm to optimize the feature selection for
      * a k-Nearest Neighbors algorithm.
-     * It generates an initial population of binary strings, where each string
+     * It generates an initial population of chromosomes, where each chromosome
      * represents a possible selection of features,
-     * and then iteratively applies crossover and mutation to generate new
-     * generations of feature selections.
+     * and then evolves it with the EvolutionEngine configured by SELECTION,
+     * CROSSOVER, ELITISM and CROSSOVER_RATE.
      * The accuracy of the k-Nearest Neighbors algorithm is calculated for each
-     * feature selection,
-     * and the feature selections are ranked based on their accuracies.
+     * feature selection.
      * The process continues until a feature selection achieves the expected
-     * accuracy or the generation limit is reached.
+     * accuracy, or MAX_GENERATIONS, MAX_SECONDS or PATIENCE generations without
+     * improvement run out.
+     * When CROSS_VALIDATION_FOLDS is set, accuracy is measured by
+     * cross-validation on the training set, so the test set stays unseen
+     * until soloTest checks the result. Training sets too large for the
+     * incremental evaluator's byte budget are scored fold by fold with a
+     * masked scan instead.
+     * When CHECKPOINT_PATH is set the state is checkpointed there as the run
+     * goes, and with RESUME set the run continues from that checkpoint,
+     * drawing the same random numbers it would have drawn without the
+     * interruption. Resuming without a checkpoint, or from one whose
+     * chromosomes or population do not fit this run, is an error.
      *
-     * @param generationLimit         The maximum number of generations to generate.
-     * @param expectedAccuracy        The expected accuracy of the k-Nearest
-     *                                Neighbors algorithm.
-     * @param initialPopulationSize   The size of the initial population of feature
-     *                                selections.
-     * @param mutationChance          The chance of a mutation occurring during the
-     *                                generation of a new population.
-     * @param testSet                 The test set, represented as a list of points.
-     *                                Each point is a list of floats.
-     * @param trainSet                The training set, represented as a list of
-     *                                points. Each point is a list of floats.
-     * @param testLabel               The labels for the test set.
-     * @param trainLabel              The labels for the training set.
-     * @param initialPopulationLength The length of the binary strings in the
-     *                                initial population.
-     * @return The binary string representing the best feature selection found by
+     * @param expectedAccuracy      The expected accuracy of the k-Nearest
+     *                              Neighbors algorithm.
+     * @param initialPopulationSize The size of the population of feature
+     *                              selections.
+     * @param mutationChance        The chance of each bit being flipped, as an
+     *                              integer between 0 and 100.
+     * @return The chromosome representing the best feature selection found by
      *         the genetic algorithm.
      */
-    public static String calculateGeneticAlgorithm(double expectedAccuracy,
+    public static Chromosome calculateGeneticAlgorithm(double expectedAccuracy,
             int initialPopulationSize,
             int mutationChance) {
 
-        final List<List<Float>> localTestSet = new ArrayList<>(TEST_DATA);
-        final List<List<Float>> localTrainSet = new ArrayList<>(TRAIN_DATA);
-
-        List<String> parentSet = generateinitialPopulation(initialPopulationSize);
-
-        List<String> mutatedParentSet = new ArrayList<>(parentSet);
-    
-        int c = 0;
+        final Dataset localTestSet = TEST_DATA;
+        final Dataset localTrainSet = TRAIN_DATA;
+
+        // CANDIDATES ARE SCORED CONCURRENTLY, EACH TASK ONLY READS THE DATASETS.
+        // WORK-STEALING, SO THE FOLDS OF ONE CANDIDATE CAN RUN ON IDLE WORKERS
+        ExecutorService fitnessPool = new ForkJoinPool(FITNESS_THREADS);
+        // SURVIVORS AND DUPLICATE CHILDREN REUSE THEIR EARLIER SCORE
+        FitnessCache<Chromosome> fitnessCache = new FitnessCache<>(FITNESS_CACHE_SIZE);
+        boolean crossValidation = CROSS_VALIDATION_FOLDS > 0;
+        // UNDER CROSS-VALIDATION THE TRAINING SET IS SCORED AGAINST ITSELF
+        Dataset scoredSet = crossValidation ? localTrainSet : localTestSet;
+        IncrementalFitnessEvaluator incremental;
+        if (INCREMENTAL_FITNESS
+                && IncrementalFitnessEvaluator.entryBytes(scoredSet, localTrainSet) <= INCREMENTAL_FITNESS_BYTES) {
+            incremental = crossValidation
+                    ? IncrementalFitnessEvaluator.crossValidation(localTrainSet, Metric.EUCLIDEAN, K, VOTING,
+                            INCREMENTAL_FITNESS_BYTES, Math.min(CROSS_VALIDATION_FOLDS, localTrainSet.rows()),
+                            new RandomStreams(RUN_SEED).stream(CROSS_VALIDATION_STREAM))
+                    : new IncrementalFitnessEvaluator(localTestSet, localTrainSet, Metric.EUCLIDEAN, K, VOTING,
+                            INCREMENTAL_FITNESS_BYTES);
+        } else {
+            incremental = null;
+        }
+        // WITHOUT THE INCREMENTAL EVALUATOR, EACH FOLD IS SCORED BY A MASKED SCAN OF THE OTHER FOLDS
+        Folds folds = crossValidation && incremental == null
+                ? new Folds(localTrainSet, IncrementalFitnessEvaluator.assignFolds(localTrainSet.rows(),
+                        Math.min(CROSS_VALIDATION_FOLDS, localTrainSet.rows()),
+                        new RandomStreams(RUN_SEED).stream(CROSS_VALIDATION_STREAM)))
+                : null;
+
+        EvolutionEngine.PopulationFitness scorePopulation = population -> {
+            fitnessCache.resetStatistics();
+            List<Future<Double>> fitness = new ArrayList<>();
+            for (Chromosome chromosome : population) {
+                fitness.add(fitnessCache.computeIfAbsent(chromosome, parent -> fitnessPool
+                        .submit(() -> incremental != null
+                                ? calculateAccuracy(incremental.predict(parent), incremental.labels())
+                                : folds != null
+                                        ? folds.evaluateFitness(parent.features())
+                                        : evaluateFitness(parent.features(), localTestSet, localTrainSet))));
+            }
+            // COLLECT THE RESULTS IN SUBMISSION ORDER ON THIS THREAD
+            double[] accuracies = new double[population.size()];
+            for (int i = 0; i < accuracies.length; i++) {
+                accuracies[i] = awaitFitness(fitness.get(i));
+            }
+            return accuracies;
+        };
+
+        EvolutionEngine engine = new EvolutionEngine(SELECTION, CROSSOVER,
+                MutationOperator.bitFlip(mutationChance / 100.0), initialPopulationSize,
+                Math.min(ELITISM, initialPopulationSize - 1), CROSSOVER_RATE);
+        EvolutionEngine.Budget budget = new EvolutionEngine.Budget(MAX_GENERATIONS,
+                TimeUnit.SECONDS.toMillis(MAX_SECONDS), PATIENCE, expectedAccuracy);
+        EvolutionEngine.GenerationListener progress = (generation, population, fitness, best, bestFitness) ->
+                System.out.println("Generation: " + generation + " Accuracy: " + bestFitness + " Cache hits: "
+                        + fitnessCache.hits() + " misses: " + fitnessCache.misses());
+        EvolutionEngine.Result result;
+        // THE WRITER THREAD SAVES CHECKPOINTS WHILE THE NEXT GENERATIONS ARE SCORED
+        try (CheckpointWriter checkpoints = CHECKPOINT_PATH != null
+                ? new CheckpointWriter(Paths.get(CHECKPOINT_PATH), CHECKPOINT_INTERVAL)
+                : null) {
+            if (RESUME && checkpoints == null) {
+                throw new IllegalStateException("Resuming needs a checkpoint file, set with -Dknn.checkpoint");
+            } else if (RESUME) {
+                // A MISSING FILE FAILS HERE RATHER THAN QUIETLY STARTING A NEW RUN
+                EvolutionEngine.State state = CheckpointWriter.read(Paths.get(CHECKPOINT_PATH));
+                if (state.best().length() != localTrainSet.cols()) {
+                    throw new IllegalStateException(CHECKPOINT_PATH + " holds chromosomes of "
+                            + state.best().length() + " features but the data has " + localTrainSet.cols());
+                }
+                System.out.println("Resuming from generation " + state.generation() + " with accuracy "
+                        + state.bestFitness());
+                result = engine.resume(state, scorePopulation, budget, progress, checkpoints);
+            } else {
+                result = engine.run(generateinitialPopulation(initialPopulationSize), scorePopulation, budget,
+                        new RandomStreams(RUN_SEED).stream(EVOLUTION_STREAM), progress, checkpoints);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            fitnessPool.shutdown();
+        }
+        System.out.println("Found best accuracy: " + result.bestFitness() + " with parent " + result.best()
+                + " after " + result.generations() + " generations (" + result.stopReason() + ")");
 
-        // STORES THE ACCURACY OF EVERY PARENT
-        List<Double> resultSet = new ArrayList<>();
+        return result.best();
 
-        while (resultSet.isEmpty() || resultSet.get(0) < expectedAccuracy) {
-            c++;
-            resultSet.clear();
-            Map<String, Double> accuracyMap = new HashMap<>();
+    }
 
-            // APPLY CROSSOVER
-            List<String> storeMutations = new ArrayList<>(crossover(mutatedParentSet));
+    /**
+     * Scores one feature selection by classifying the test set with only the
+     * selected features. The features are masked in place rather than copied
+     * out with retrieveDataFromBinaryString. Unlike shortcutEuclidean it does
+     * not write output2.txt, so several selections can be scored at the same
+     * time.
+     *
+     * @param featureIndices The indices of the selected features.
+     * @param testSet        The labelled test set.
+     * @param trainSet       The labelled training set.
+     * @return The accuracy of the predictions.
+     */
+    static Double evaluateFitness(int[] featureIndices, Dataset testSet, Dataset trainSet) {
+        return calculateAccuracy(predictMasked(featureIndices, testSet, trainSet), testSet.labels());
+    }
 
-            // APPLY MUTATION
-            storeMutations = mutator(storeMutations, mutationChance);
+    private static int[] predictMasked(int[] featureIndices, Dataset testSet, Dataset trainSet) {
+        NeighbourSearch maskedSearch = new BruteForceSearch(trainSet, Metric.EUCLIDEAN, featureIndices);
+        return new KnnClassifier(maskedSearch, trainSet.labels(), K, VOTING).predict(testSet);
+    }
 
-            // STORE BOTH OLD GENERATION AND NEW GENERATION (2X INITIAL POPULATION SIZE)
-            for (int i = 0; i < storeMutations.size(); i++) {
-                mutatedParentSet.add(storeMutations.get(i));
+    /**
+     * Cross-validation folds of the training set, each held as copies of its
+     * own rows and of the rows outside it, for scoring without the
+     * incremental evaluator. The folds of one candidate run as separate
+     * tasks when called from the fitness pool, so idle workers can take them.
+     */
+    static final class Folds {
+
+        private final int[] labels;
+        private final int[][] rows;
+        private final Dataset[] inside;
+        private final Dataset[] outside;
+
+        /**
+         * @param train Labelled training set
+         * @param fold  Fold of every training row
+         */
+        Folds(Dataset train, int[] fold) {
+            int count = Arrays.stream(fold).max().orElse(-1) + 1;
+            this.labels = train.labels();
+            this.rows = new int[count][];
+            this.inside = new Dataset[count];
+            this.outside = new Dataset[count];
+            for (int f = 0; f < count; f++) {
+                int current = f;
+                rows[f] = IntStream.range(0, fold.length).filter(row -> fold[row] == current).toArray();
+                inside[f] = selectRows(train, rows[f]);
+                outside[f] = selectRows(train,
+                        IntStream.range(0, fold.length).filter(row -> fold[row] != current).toArray());
             }
+        }
 
-            // GET THE INDICES OF MUTATED PARENTS
-            List<List<Integer>> indices = new ArrayList<>(findIndicesofOnes(mutatedParentSet));
-
-            for (int i = 0; i < indices.size(); i++) {
-
-                // GET THE DATA AT THE INDICES
-                List<List<Float>> modifiedTrainSet = new ArrayList<>(
-                        retrieveDataFromBinaryString(indices.get(i), localTrainSet));
-                List<List<Float>> modifiedTestSet = new ArrayList<>(
-                        retrieveDataFromBinaryString(indices.get(i), localTestSet));
-
-                double result = shortcutEuclidean(modifiedTestSet, modifiedTrainSet, TEST_LABEL, TRAIN_LABEL);
-
-                accuracyMap.put(mutatedParentSet.get(i), result);
-                resultSet.add(result);
+        /**
+         * @return The accuracy of predicting every training row from the rows
+         *         outside its fold, using only the selected features
+         */
+        Double evaluateFitness(int[] featureIndices) {
+            int[] predictions = new int[labels.length];
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(rows.length);
+            for (int f = 0; f < rows.length; f++) {
+                int current = f;
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    int[] foldPredictions = predictMasked(featureIndices, inside[current], outside[current]);
+                    for (int i = 0; i < foldPredictions.length; i++) {
+                        predictions[rows[current][i]] = foldPredictions[i];
+                    }
+                }));
             }
-            accuracyMap.size();
-            mutatedParentSet.clear();
-            resultSet.sort(Comparator.reverseOrder());
-            accuracyMap = accuracyMap.entrySet().stream().sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
-                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (oldValue, newValue) -> oldValue,
-                            LinkedHashMap::new));
-
-            List<String> mostAccurateParents = new ArrayList<>(accuracyMap.keySet());
-
-            mutatedParentSet = mostAccurateParents.subList(0, mostAccurateParents.size() / 2);
-
-            if (mutatedParentSet.size() != initialPopulationSize
-                    && initialPopulationSize - mutatedParentSet.size() >= 2) {
-                List<String> addition = mutator(crossover(generateinitialPopulation(
-                        initialPopulationSize - mutatedParentSet.size())), mutationChance);
-                for (int i = 0; i < addition.size(); i++) {
-                    mutatedParentSet.add(addition.get(i));
-                }
+            if (ForkJoinTask.inForkJoinPool()) {
+                ForkJoinTask.invokeAll(tasks);
+            } else {
+                tasks.forEach(ForkJoinTask::invoke);
             }
-            System.out.println("Generation: " + c + " Accuracy: " + resultSet.get(0));
+            return calculateAccuracy(predictions, labels);
         }
-        System.out.println("Found best accuracy: " + resultSet.get(0) + " with parent " + mutatedParentSet.get(0));
 
-        return mutatedParentSet.get(0);
+        private static Dataset selectRows(Dataset data, int[] selected) {
+            int cols = data.cols();
+            float[] values = new float[selected.length * cols];
+            int[] selectedLabels = new int[selected.length];
+            for (int i = 0; i < selected.length; i++) {
+                System.arraycopy(data.values(), data.offset(selected[i]), values, i * cols, cols);
+                selectedLabels[i] = data.label(selected[i]);
+            }
+            return new Dataset(values, selected.length, cols, cols, selectedLabels);
+        }
+    }
 
+    /**
+     * Waits for a fitness evaluation submitted to the fitness pool.
+     *
+     * @param result The pending evaluation.
+     * @return The accuracy it produced.
+     */
+    private static double awaitFitness(Future<Double> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scoring the population", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Scoring a candidate failed", e.getCause());
+        }
     }
 
     /**
-     * This method performs crossover on a set of binary strings representing
+     * This method performs crossover on a set of chromosomes representing
      * feature selections for a k-Nearest Neighbors algorithm.
-     * Crossover is a genetic algorithm operation where two parent strings are
+     * Crossover is a genetic algorithm operation where two parent chromosomes are
      * selected and parts of their data are swapped to create new offspring.
-     * The method performs crossover on pairs of binary strings in the set, with the
-     * first string in each pair being the first string in the set and the second
-     * string being another string in the set.
+     * The method performs crossover on pairs of chromosomes in the set, with the
+     * first chromosome in each pair being the first chromosome in the set and the
+     * second chromosome being another chromosome in the set.
      * The points at which the data is swapped are determined randomly.
+     * calculateGeneticAlgorithm now recombines through CROSSOVER; this is the
+     * original population-level operator.
+     * The caller supplies the randomness, for example a stream of RUN_SEED.
      *
-     * @param parentSet A list of binary strings representing feature selections.
-     * @return A list of binary strings representing the original feature selections
+     * @param parentSet A list of chromosomes representing feature selections.
+     * @param rand      The source of randomness.
+     * @return A list of chromosomes representing the original feature selections
      *         and the new feature selections created by crossover.
      */
-    public static List<String> crossover(List<String> parentSet) {
-
-        List<String> localParentSet = new ArrayList<>(parentSet);
-        List<String> returnList = new ArrayList<>();
+    public static List<Chromosome> crossover(List<Chromosome> parentSet, RandomGenerator rand) {
 
-        Random rand = new Random();
+        List<Chromosome> localParentSet = new ArrayList<>(parentSet);
+        List<Chromosome> returnList = new ArrayList<>();
 
         returnList.add(localParentSet.get(0));
         returnList.add(localParentSet.get(1));
 
         for (int i = 2; i < localParentSet.size() - 1; i += 2) {
             int length = localParentSet.get(i).length();
-            String p1 = localParentSet.get(0);
-            String p2 = localParentSet.get(i + 1);
+            Chromosome p1 = localParentSet.get(0);
+            Chromosome p2 = localParentSet.get(i + 1);
 
             int r1 = rand.nextInt(length);
             int r2 = rand.nextInt(length);
@@ -503,52 +753,43 @@ public class kNN2 {
             int crossoverStart = (r1 < r2) ? r1 : r2;
             int crossoverEnd = (r1 < r2) ? r2 : r1;
 
-            String swap = p1.substring(crossoverStart, crossoverEnd);
-            p1 = p1.substring(0, crossoverStart) + p2.substring(crossoverStart, crossoverEnd)
-                    + p1.substring(crossoverEnd);
-            p2 = p2.substring(0, crossoverStart) + swap + p2.substring(crossoverEnd);
+            Chromosome[] children = p1.crossover(p2, crossoverStart, crossoverEnd);
 
-            returnList.add(p1);
-            returnList.add(p2);
+            returnList.add(children[0]);
+            returnList.add(children[1]);
         }
         return returnList;
     }
 
     /**
-     * This method performs mutation on a set of binary strings representing feature
+     * This method performs mutation on a set of chromosomes representing feature
      * selections for a k-Nearest Neighbors algorithm.
      * Mutation is a genetic algorithm operation where a small random change is made
      * to the data to maintain diversity in the population.
-     * The method performs mutation on each binary string in the set, with each bit
-     * in the string having a chance to be flipped.
+     * The method performs mutation on each chromosome in the set, with each bit
+     * in the chromosome having a chance to be flipped.
      * The chance of a bit being flipped is determined by the mutationChance
      * parameter.
+     * calculateGeneticAlgorithm now mutates through MutationOperator.bitFlip;
+     * this is the original population-level operator.
+     * The caller supplies the randomness, for example a stream of RUN_SEED.
      *
-     * @param parentSet      A list of binary strings representing feature
+     * @param parentSet      A list of chromosomes representing feature
      *                       selections.
      * @param mutationChance The chance of a bit being flipped, represented as an
      *                       integer between 0 and 100.
-     * @return A list of binary strings representing the mutated feature selections.
+     * @param rand           The source of randomness.
+     * @return A list of chromosomes representing the mutated feature selections.
      */
-    public static List<String> mutator(List<String> parentSet, int mutationChance) {
+    public static List<Chromosome> mutator(List<Chromosome> parentSet, int mutationChance, RandomGenerator rand) {
 
-        List<String> modifiableParentSet = new ArrayList<>(parentSet);
-        List<String> mutationDone = new ArrayList<>();
+        List<Chromosome> modifiableParentSet = new ArrayList<>(parentSet);
+        List<Chromosome> mutationDone = new ArrayList<>();
 
         mutationDone.add(modifiableParentSet.get(0));
 
-        Random rand = new Random();
         for (int i = 1; i < modifiableParentSet.size() - 1; i++) {
-
-            StringBuilder p1 = new StringBuilder(modifiableParentSet.get(i));
-
-            for (int j = 0; j < p1.length(); j++) {
-                if (rand.nextInt(100) < mutationChance) {
-                    p1.setCharAt(j, (p1.charAt(j) == '0') ? '1' : '0');
-                }
-            }
-
-            mutationDone.add(p1.toString());
+            mutationDone.add(modifiableParentSet.get(i).mutate(mutationChance / 100.0, rand));
         }
 
         return mutationDone;
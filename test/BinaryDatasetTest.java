@@ -0,0 +1,73 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that the KNNB format round-trips datasets exactly and that damaged
+ * files are rejected.
+ *
+ * @version 1.0
+ */
+class BinaryDatasetTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsValuesAndLabels() throws IOException {
+        Dataset data = SearchTestData.tied(257, 13, new Random(7));
+        Path file = directory.resolve("data.knnb");
+        BinaryDataset.write(data, file);
+        Dataset back = BinaryDataset.read(file);
+        assertEquals(data.rows(), back.rows());
+        assertEquals(data.cols(), back.cols());
+        assertArrayEquals(data.values(), back.values());
+        assertArrayEquals(data.labels(), back.labels());
+    }
+
+    @Test
+    void roundTripsUnlabelledData() throws IOException {
+        float[] values = {1.5f, -2f, Float.MIN_VALUE, 0f, Float.MAX_VALUE, -0f};
+        Path file = directory.resolve("unlabelled.knnb");
+        BinaryDataset.write(new Dataset(values, 2, 3), file);
+        Dataset back = BinaryDataset.read(file);
+        assertArrayEquals(values, back.values());
+        assertNull(back.labels());
+    }
+
+    @Test
+    void rejectsCorruptPayload() throws IOException {
+        Path file = directory.resolve("corrupt.knnb");
+        BinaryDataset.write(SearchTestData.tied(50, 4, new Random(8)), file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[BinaryDataset.HEADER_BYTES + 17] ^= 1;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> BinaryDataset.read(file));
+    }
+
+    @Test
+    void rejectsTruncatedFile() throws IOException {
+        Path file = directory.resolve("truncated.knnb");
+        BinaryDataset.write(SearchTestData.tied(50, 4, new Random(9)), file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+        assertThrows(IOException.class, () -> BinaryDataset.read(file));
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("text.knnb");
+        Files.writeString(file, "0.5 0.25 0.75 1.0 0.0 0.5 0.25 0.75 1.0 0.0 0.5 0.25 0.75\n");
+        assertThrows(IOException.class, () -> BinaryDataset.read(file));
+    }
+}
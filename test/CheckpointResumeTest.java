@@ -0,0 +1,106 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that a genetic algorithm run stopped part-way and resumed from its
+ * checkpoint ends exactly where an uninterrupted run with the same seed
+ * ends.
+ *
+ * @version 1.0
+ */
+class CheckpointResumeTest {
+
+    private static final int LENGTH = 200;
+    private static final int POPULATION = 30;
+    private static final int INTERRUPTED_AT = 17;
+
+    // One-max: the fitness of a chromosome is its number of set bits
+    private static final EvolutionEngine.PopulationFitness ONE_MAX =
+            population -> population.stream().mapToDouble(Chromosome::cardinality).toArray();
+    private static final EvolutionEngine.Budget BUDGET =
+            new EvolutionEngine.Budget(40, Long.MAX_VALUE, 1000, Double.MAX_VALUE);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void resumedRunMatchesUninterruptedRun() throws IOException {
+        RandomStreams streams = new RandomStreams(42);
+        List<Chromosome> initial = initialPopulation(streams);
+        EvolutionEngine.Result uninterrupted = engine(POPULATION).run(initial, ONE_MAX, BUDGET,
+                streams.stream(1), null, null);
+
+        Path checkpoint = directory.resolve("ga.ckpt");
+        try (CheckpointWriter writer = new CheckpointWriter(checkpoint, 5)) {
+            EvolutionEngine.StateListener crashing = state -> {
+                writer.generationCompleted(state);
+                if (state.generation() == INTERRUPTED_AT) {
+                    throw new Interrupted();
+                }
+            };
+            assertThrows(Interrupted.class,
+                    () -> engine(POPULATION).run(initial, ONE_MAX, BUDGET, streams.stream(1), null, crashing));
+        }
+        EvolutionEngine.State saved = CheckpointWriter.read(checkpoint);
+        assertEquals(INTERRUPTED_AT, saved.generation());
+
+        EvolutionEngine.Result resumed = engine(POPULATION).resume(saved, ONE_MAX, BUDGET, null, null);
+        assertEquals(uninterrupted.best(), resumed.best());
+        assertEquals(uninterrupted.bestFitness(), resumed.bestFitness());
+        assertEquals(uninterrupted.generations(), resumed.generations());
+        assertEquals(uninterrupted.stopReason(), resumed.stopReason());
+        assertEquals(uninterrupted.population(), resumed.population());
+        assertArrayEquals(uninterrupted.fitness(), resumed.fitness());
+    }
+
+    @Test
+    void resumeRejectsPopulationOfAnotherSize() throws IOException {
+        RandomStreams streams = new RandomStreams(7);
+        Path checkpoint = directory.resolve("ga.ckpt");
+        try (CheckpointWriter writer = new CheckpointWriter(checkpoint, 1)) {
+            engine(POPULATION).run(initialPopulation(streams), ONE_MAX,
+                    new EvolutionEngine.Budget(3, Long.MAX_VALUE, 1000, Double.MAX_VALUE), streams.stream(1), null,
+                    writer);
+        }
+        EvolutionEngine.State saved = CheckpointWriter.read(checkpoint);
+        assertThrows(IllegalArgumentException.class,
+                () -> engine(POPULATION + 1).resume(saved, ONE_MAX, BUDGET, null, null));
+    }
+
+    @Test
+    void readingMissingCheckpointFails() {
+        assertThrows(NoSuchFileException.class, () -> CheckpointWriter.read(directory.resolve("missing.ckpt")));
+    }
+
+    private static EvolutionEngine engine(int populationSize) {
+        return new EvolutionEngine(Selection.tournament(3), CrossoverOperator.twoPoint(),
+                MutationOperator.bitFlip(0.01), populationSize, 2, 0.9);
+    }
+
+    private static List<Chromosome> initialPopulation(RandomStreams streams) {
+        SeededRandom random = streams.stream(0);
+        List<Chromosome> population = new ArrayList<>();
+        for (int i = 0; i < POPULATION; i++) {
+            population.add(Chromosome.random(LENGTH, random));
+        }
+        return population;
+    }
+
+    /**
+     * Stands in for a crash part-way through a run.
+     */
+    private static final class Interrupted extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+    }
+}
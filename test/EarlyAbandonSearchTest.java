@@ -0,0 +1,28 @@
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that abandoning hopeless rows, with or without reordering the
+ * features, never changes the neighbours found.
+ *
+ * @version 1.0
+ */
+class EarlyAbandonSearchTest {
+
+    @Test
+    void matchesBruteForce() {
+        Random random = new Random(5);
+        for (int trial = 0; trial < 60; trial++) {
+            Dataset train = SearchTestData.tied(1 + random.nextInt(1500), 1 + random.nextInt(70), random);
+            Dataset queries = SearchTestData.tied(1 + random.nextInt(100), train.cols(), random);
+            Metric metric = Metric.values()[trial % Metric.values().length];
+            int k = 1 + random.nextInt(10);
+            Neighbours[] expected = new BruteForceSearch(train, metric).queryAll(queries, k);
+            SearchTestData.assertSameNeighbours(expected,
+                    new EarlyAbandonSearch(train, metric, false).queryAll(queries, k));
+            SearchTestData.assertSameNeighbours(expected,
+                    new EarlyAbandonSearch(train, metric, true).queryAll(queries, k));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that streaming the training set from disk in chunks finds the same
+ * neighbours and predictions as searching it in memory.
+ *
+ * @version 1.0
+ */
+class OutOfCoreSearchTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void matchesBruteForceForAnyChunking() throws IOException {
+        Random random = new Random(6);
+        for (int trial = 0; trial < 20; trial++) {
+            Dataset train = SearchTestData.tied(1 + random.nextInt(3000), 1 + random.nextInt(30), random);
+            Dataset queries = SearchTestData.tied(1 + random.nextInt(100), train.cols(), random);
+            Path file = directory.resolve("train" + trial + ".knnb");
+            BinaryDataset.write(train, file);
+            Metric metric = Metric.values()[trial % Metric.values().length];
+            int k = 1 + random.nextInt(8);
+            OutOfCoreSearch search = new OutOfCoreSearch(file, metric, 1 + random.nextInt(1000),
+                    1 + random.nextInt(3));
+            SearchTestData.assertSameNeighbours(new BruteForceSearch(train, metric).queryAll(queries, k),
+                    search.queryAll(queries, k));
+            assertArrayEquals(
+                    new KnnClassifier(new BruteForceSearch(train, metric), train.labels(), k,
+                            Voting.INVERSE_DISTANCE).predict(queries),
+                    search.predict(queries, k, Voting.INVERSE_DISTANCE));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the tiled parallel search returns exactly the neighbours of
+ * the sequential scan, whatever the thread count and tile sizes.
+ *
+ * @version 1.0
+ */
+class ParallelBruteForceSearchTest {
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void matchesSequentialScanForAnyTiling() {
+        Random random = new Random(2);
+        for (int trial = 0; trial < 100; trial++) {
+            Dataset train = SearchTestData.tied(1 + random.nextInt(2000), 1 + random.nextInt(40), random);
+            Dataset queries = SearchTestData.tied(1 + random.nextInt(200), train.cols(), random);
+            Metric metric = Metric.values()[trial % Metric.values().length];
+            int[] features = trial % 3 == 0 ? SearchTestData.someFeatures(train.cols(), random) : null;
+            int k = 1 + random.nextInt(12);
+            ForkJoinPool threads = new ForkJoinPool(1 + random.nextInt(8));
+            try {
+                SearchTestData.assertSameNeighbours(
+                        new BruteForceSearch(train, metric, features).queryAll(queries, k),
+                        new ParallelBruteForceSearch(train, metric, features, threads, 1 + random.nextInt(20_000),
+                                1 + random.nextInt(64)).queryAll(queries, k));
+            } finally {
+                threads.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void returnsNoNeighboursForNoQueries() {
+        Random random = new Random(3);
+        Dataset train = SearchTestData.tied(100, 5, random);
+        Dataset queries = new Dataset(new float[0], 0, 5);
+        Neighbours[] expected = new BruteForceSearch(train, Metric.EUCLIDEAN).queryAll(queries, 3);
+        Neighbours[] actual = new ParallelBruteForceSearch(train, Metric.EUCLIDEAN, pool).queryAll(queries, 3);
+        assertEquals(0, expected.length);
+        assertEquals(0, actual.length);
+    }
+
+    @Test
+    void keepsAtMostTheTrainingRows() {
+        Random random = new Random(4);
+        Dataset train = SearchTestData.tied(3, 4, random);
+        Dataset queries = SearchTestData.tied(10, 4, random);
+        Neighbours[] actual = new ParallelBruteForceSearch(train, Metric.MANHATTAN, pool).queryAll(queries, 10);
+        for (Neighbours neighbours : actual) {
+            assertArrayEquals(new int[] {0, 1, 2}, Arrays.stream(neighbours.indices()).sorted().toArray());
+        }
+    }
+}
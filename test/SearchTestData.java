@@ -0,0 +1,42 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Random datasets for the search tests. Values are multiples of 1/4, so many
+ * rows lie at exactly the same distance and tie-breaking is exercised.
+ *
+ * @version 1.0
+ */
+final class SearchTestData {
+
+    private SearchTestData() {
+    }
+
+    static Dataset tied(int rows, int cols, Random random) {
+        float[] values = new float[rows * cols];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(4) / 4f;
+        }
+        int[] labels = IntStream.range(0, rows).map(row -> random.nextInt(3)).toArray();
+        return new Dataset(values, rows, cols).withLabels(labels);
+    }
+
+    /**
+     * @return A non-empty, ascending subset of the column indices
+     */
+    static int[] someFeatures(int cols, Random random) {
+        int[] features = IntStream.range(0, cols).filter(c -> random.nextBoolean()).toArray();
+        return features.length > 0 ? features : new int[] {random.nextInt(cols)};
+    }
+
+    static void assertSameNeighbours(Neighbours[] expected, Neighbours[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i].indices(), actual[i].indices(), "indices of query " + i);
+            assertArrayEquals(expected[i].distances(), actual[i].distances(), "distances of query " + i);
+        }
+    }
+}
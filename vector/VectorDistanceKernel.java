@@ -0,0 +1,68 @@
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels written against the incubating Vector API. Each lane keeps its
+ * own single-precision partial sum, and the lanes are reduced once at the
+ * end; the tail that does not fill a vector is summed in scalar code.
+ * <p>
+ * This class needs {@code --add-modules jdk.incubator.vector} both to compile
+ * and to run, so it is kept out of the top-level sources; compile it with
+ * {@code javac --add-modules jdk.incubator.vector -cp . -d . vector/*.java}
+ * after the rest. Callers should obtain it through
+ * {@link DistanceKernels#best()}, which falls back to
+ * {@link ScalarDistanceKernel} when the module or this class is absent.
+ * <p>
+ * Because the partial sums are float rather than double and are added in a
+ * different order, results differ slightly from {@link Metric#accumulate}.
+ * {@link DistanceKernels#RELATIVE_TOLERANCE} bounds the difference.
+ *
+ * @version 1.0
+ */
+public final class VectorDistanceKernel implements DistanceKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public double squaredEuclidean(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(length);
+        int k = 0;
+        for (; k < bound; k += SPECIES.length()) {
+            FloatVector diff = FloatVector.fromArray(SPECIES, a, aOffset + k)
+                    .sub(FloatVector.fromArray(SPECIES, b, bOffset + k));
+            sum = diff.fma(diff, sum);
+        }
+        double total = sum.reduceLanes(VectorOperators.ADD);
+        for (; k < length; k++) {
+            double diff = a[aOffset + k] - b[bOffset + k];
+            total += diff * diff;
+        }
+        return total;
+    }
+
+    @Override
+    public double manhattan(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(length);
+        int k = 0;
+        for (; k < bound; k += SPECIES.length()) {
+            FloatVector diff = FloatVector.fromArray(SPECIES, a, aOffset + k)
+                    .sub(FloatVector.fromArray(SPECIES, b, bOffset + k));
+            sum = sum.add(diff.abs());
+        }
+        double total = sum.reduceLanes(VectorOperators.ADD);
+        for (; k < length; k++) {
+            total += Math.abs(a[aOffset + k] - b[bOffset + k]);
+        }
+        return total;
+    }
+
+    /**
+     * @return Number of float lanes processed per step
+     */
+    public static int lanes() {
+        return SPECIES.length();
+    }
+}